@@ -1,12 +1,162 @@
 package org.markomannia.mw2d;
 
+import java.time.Duration;
 import java.util.Base64;
+import java.util.Set;
+
+import org.markomannia.mw2d.client.CacheMode;
+import org.markomannia.mw2d.client.FetchMode;
+import org.markomannia.mw2d.markdown.RendererMode;
 
 public class Config {
 
 	public static final String BASE_PATH = "/workspaces/mediawiki2docusaurus/out/wiki";
 
+	/**
+	 * Directory of the response cache, and whether responses are cached,
+	 * revalidated or served offline.
+	 */
+	public static final String CACHE_PATH = BASE_PATH + "/../.mw2d-cache";
+
+	public static final CacheMode CACHE_MODE = CacheMode.REVALIDATE;
+
+	/**
+	 * State of the last migration run, incremental runs only migrate the pages
+	 * that changed since.
+	 */
+	public static final String MANIFEST_PATH = BASE_PATH + "/../.mw2d-manifest.tsv";
+
+	/**
+	 * Journal of the pages completed in the current run, which --resume
+	 * continues, and list of the pages that failed in the last run.
+	 */
+	public static final String JOURNAL_PATH = BASE_PATH + "/../.mw2d-journal.tsv";
+
+	public static final String DEAD_LETTER_PATH = BASE_PATH + "/../.mw2d-failed.tsv";
+
+	/**
+	 * Rewrite rules for links in the markdown, used instead of the bundled
+	 * rewrite-rules.tsv if the file exists.
+	 */
+	public static final String REWRITE_RULES_PATH = BASE_PATH + "/../rewrite-rules.tsv";
+
+	/**
+	 * Rules for the category of pages by the beginning of their title, used
+	 * instead of the bundled category-rules.tsv if the file exists.
+	 */
+	public static final String CATEGORY_RULES_PATH = BASE_PATH + "/../category-rules.tsv";
+
+	/**
+	 * Port of the status and trigger endpoints of the daemon, bound to localhost,
+	 * and the interval in which the daemon syncs with the wiki.
+	 */
+	public static final int DAEMON_PORT = 8787;
+
+	public static final Duration DAEMON_POLL_INTERVAL = Duration.ofSeconds(60);
+
+	/**
+	 * Interval in which the daemon enumerates all pages and categories again,
+	 * between these it updates them from the recent changes of the wiki.
+	 */
+	public static final Duration DAEMON_FULL_REFRESH_INTERVAL = Duration.ofHours(24);
+
 	public static final String MEDIAWIKI_URL = "https://support.xtento.com/";
 
+	public static final String MEDIAWIKI_API_URL = MEDIAWIKI_URL + "api.php";
+
+	/**
+	 * IDs of the namespaces whose pages are migrated, they have to include the
+	 * main namespace, whose titles are needed to rewrite links. Every run
+	 * enumerates all of them, --namespace can only narrow them down.
+	 */
+	public static final Set<Integer> NAMESPACES = Set.of(0);
+
+	/**
+	 * Enumerates pages and categories through the Action API. Falls back to
+	 * scraping the Special pages if the API is not available.
+	 */
+	public static final boolean USE_API = true;
+
+	/**
+	 * Whether the skinned page is downloaded for each article, or only the
+	 * rendered body through action=parse.
+	 */
+	public static final FetchMode FETCH_MODE = FetchMode.PARSE;
+
+	/**
+	 * How article bodies are converted to markdown. COPYDOWN is kept as a
+	 * fallback for comparing the output.
+	 */
+	public static final RendererMode RENDERER_MODE = RendererMode.NATIVE;
+
 	public static final String OPTIONAL_AUTH = Base64.getEncoder().encodeToString("username:password".getBytes());
+
+	/**
+	 * Number of pages fetched and converted at the same time. 1 processes the
+	 * pages sequentially.
+	 */
+	public static final int CONCURRENCY = 8;
+
+	/**
+	 * Maximum number of HTTP requests in flight at the same time, further requests
+	 * are queued without blocking a thread. With HTTP/2 the requests are
+	 * multiplexed over few connections.
+	 */
+	public static final int HTTP_MAX_IN_FLIGHT = 64;
+
+	/**
+	 * Adapts the number of requests in flight between HTTP_MIN_IN_FLIGHT and
+	 * HTTP_MAX_IN_FLIGHT: it grows while the server answers quickly and is cut
+	 * when the p95 latency exceeds HTTP_LATENCY_TOLERANCE times the best p95 seen,
+	 * or when MediaWiki reports maxlag or 503.
+	 */
+	public static final boolean HTTP_ADAPTIVE_CONCURRENCY = true;
+
+	public static final int HTTP_MIN_IN_FLIGHT = 2;
+
+	public static final int HTTP_INITIAL_IN_FLIGHT = 8;
+
+	public static final double HTTP_LATENCY_TOLERANCE = 2.0;
+
+	/**
+	 * maxlag parameter in seconds sent with every request to MediaWiki, 0 disables
+	 * it.
+	 */
+	public static final int MEDIAWIKI_MAXLAG = 5;
+
+	/**
+	 * Number of threads of the HTTP client executor. 0 uses the default executor
+	 * of the JDK.
+	 */
+	public static final int HTTP_EXECUTOR_THREADS = 4;
+
+	public static final Duration HTTP_CONNECT_TIMEOUT = Duration.ofMillis(10 * 1000);
+
+	public static final Duration HTTP_REQUEST_TIMEOUT = Duration.ofMillis(10 * 1000);
+
+	/**
+	 * Retries of failed requests: I/O errors, 429 and 5xx are retried with
+	 * exponential backoff and jitter, or after the Retry-After sent by the server.
+	 */
+	public static final int HTTP_RETRY_MAX_ATTEMPTS = 6;
+
+	public static final Duration HTTP_RETRY_BASE_DELAY = Duration.ofMillis(500);
+
+	public static final Duration HTTP_RETRY_MAX_DELAY = Duration.ofSeconds(30);
+
+	public static final Duration HTTP_RETRY_MAX_RETRY_AFTER = Duration.ofMinutes(5);
+
+	/**
+	 * Fraction of the requests that may be retries, so that a failing server is not
+	 * flooded.
+	 */
+	public static final double HTTP_RETRY_BUDGET_RATIO = 0.2;
+
+	/**
+	 * Number of consecutive failures after which requests to a host are held back,
+	 * and for how long.
+	 */
+	public static final int HTTP_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 10;
+
+	public static final Duration HTTP_CIRCUIT_BREAKER_OPEN_DURATION = Duration.ofSeconds(30);
 }
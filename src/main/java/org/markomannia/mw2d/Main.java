@@ -1,92 +1,296 @@
 package org.markomannia.mw2d;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import org.markomannia.mw2d.articles.ArticleReader;
 import org.markomannia.mw2d.articles.ArticleRecord;
 import org.markomannia.mw2d.articles.ArticleWriter;
+import org.markomannia.mw2d.articles.ConvertedArticleRecord;
+import org.markomannia.mw2d.articles.RedirectRecord;
+import org.markomannia.mw2d.articles.util.ArticleUtils;
 import org.markomannia.mw2d.assets.AssetRecord;
-import org.markomannia.mw2d.assets.util.AssetUtils;
+import org.markomannia.mw2d.categories.CategoryIndex;
 import org.markomannia.mw2d.categories.CategoryWriter;
 import org.markomannia.mw2d.categories.util.CategoryUtils;
+import org.markomannia.mw2d.client.FetchMode;
+import org.markomannia.mw2d.client.MediaWikiApiClient;
 import org.markomannia.mw2d.client.MediaWikiCategoryRecord;
 import org.markomannia.mw2d.client.MediaWikiClient;
 import org.markomannia.mw2d.client.MediaWikiPageRecord;
-import org.markomannia.mw2d.document.util.DocumentUtils;
+import org.markomannia.mw2d.client.MediaWikiParsedPageRecord;
+import org.markomannia.mw2d.daemon.SyncDaemon;
 import org.markomannia.mw2d.docusaurus.DocusaurusConfigWriter;
-import org.markomannia.mw2d.util.UrlUtils;
+import org.markomannia.mw2d.manifest.DeadLetterLog;
+import org.markomannia.mw2d.manifest.Journal;
+import org.markomannia.mw2d.manifest.JournalEntryRecord;
+import org.markomannia.mw2d.manifest.ManifestEntryRecord;
+import org.markomannia.mw2d.manifest.ManifestOrderRecord;
+import org.markomannia.mw2d.manifest.ManifestRecord;
+import org.markomannia.mw2d.manifest.util.ManifestUtils;
+import org.markomannia.mw2d.markdown.UrlRewriter;
+import org.markomannia.mw2d.selection.PageSelector;
+import org.markomannia.mw2d.selection.ShardRecord;
+import org.markomannia.mw2d.util.BatchUtils;
+import org.markomannia.mw2d.util.ConcurrencyUtils;
 
 public class Main {
 
+	// Ignore list - pages containing these strings in URL will be skipped
+	private static final List<String> IGNORE_LIST = List.of(
+		"Private:Server",
+		"Private/Server"
+	);
+
 	public static void main(final String[] args) throws Exception {
-		final List<MediaWikiCategoryRecord> categories = MediaWikiClient.getCategories();
-		final List<MediaWikiCategoryRecord> categoriesSorted = CategoryUtils.sortCategories(categories);
-
-		System.out.println("Found " + categories.size() + " categories");
-
-		final List<MediaWikiPageRecord> pages = MediaWikiClient.getPages();
-
-		// Ignore list - pages containing these strings in URL will be skipped
-		final List<String> ignoreList = List.of(
-			"Private:Server",
-			"Private/Server"
-		);
-
-		// Filter out Special:, Category: pages and ignored pages (based on URL pattern)
-		final List<MediaWikiPageRecord> realPages = pages.stream()
-				.filter(p -> !p.isRedirect())
-				.filter(p -> !p.url().contains("/Special:"))
-				.filter(p -> !p.url().contains("/Category:"))
-				.filter(p -> !p.url().contains("title=Special:"))
-				.filter(p -> !p.url().contains("title=Category:"))
-				.filter(p -> ignoreList.stream().noneMatch(ignore -> p.url().contains(ignore)))
-				.collect(Collectors.toList());
-		final List<MediaWikiPageRecord> redirects = pages.stream()
-				.filter(p -> p.isRedirect())
-				.filter(p -> !p.url().contains("/Special:"))
-				.filter(p -> !p.url().contains("/Category:"))
-				.filter(p -> !p.url().contains("title=Special:"))
-				.filter(p -> !p.url().contains("title=Category:"))
-				.filter(p -> ignoreList.stream().noneMatch(ignore -> p.url().contains(ignore)))
-				.collect(Collectors.toList());
-
-		System.out.println("Found " + realPages.size() + " articles");
-		System.out.println("Found " + redirects.size() + " redirects");
-
-		final List<ArticleRecord> articles = new ArrayList<>();
-		final Map<String, ArticleRecord> articlesByTitles = new HashMap<>();
+		final MigrationOptions options = MigrationOptions.parse(args);
+
+		if (options.daemon()) {
+			new SyncDaemon(Config.DAEMON_PORT, Config.DAEMON_POLL_INTERVAL).run();
+		} else if (!options.mergedManifests().isEmpty()) {
+			merge(options.mergedManifests());
+		} else {
+			migrate(options);
+		}
+	}
 
-		for (final MediaWikiPageRecord page : realPages) {
-			final String url = page.url();
+	/**
+	 * Migrates the wiki. Incremental runs only fetch and convert the pages that
+	 * changed since the run recorded in the manifest, the pages that link to new
+	 * or removed titles, and delete the output of removed pages. Runs with a
+	 * selection only fetch and convert the selected pages, the other pages are
+	 * taken from the manifest.
+	 *
+	 * Sharded runs only migrate the pages of their shard and record them in a
+	 * manifest of the shard. Sidebar and Docusaurus configuration are written when
+	 * the manifests of all shards are merged. Incremental sharded runs need the
+	 * merged manifest of the last run to know which titles were added or removed.
+	 */
+	public static ManifestRecord migrate(final MigrationOptions options) throws IOException, InterruptedException {
+		final ShardRecord shard = options.shard();
+		final Path manifestPath = Path.of(shardPath(shard, Config.MANIFEST_PATH));
+		final PageSelector selector = PageSelector.create(options.selection());
+		// read in complete runs as well, failed pages keep their previous output and removed pages are deleted
+		final ManifestRecord previous = ManifestUtils.read(manifestPath);
+		final ManifestRecord previousIndex = shard == null || previous == null ? previous
+				: ManifestUtils.read(Path.of(Config.MANIFEST_PATH));
+
+		if (options.incremental() && previous == null) {
+			System.out.println("No manifest found at " + manifestPath + ", migrating all pages");
+		} else if (options.incremental() && previousIndex == null) {
+			System.out.println("No merged manifest found at " + Config.MANIFEST_PATH + ", migrating all pages");
+		}
 
-			final String html = MediaWikiClient.getHtml(url);
-			final ArticleRecord article = onPageCreateArticle(html, url, false, categoriesSorted);
+		return migrate(MediaWikiClient.streamPages(selector.namespacesToEnumerate()),
+				MediaWikiClient.getCategoriesAsync(), previous, previousIndex,
+				options.incremental() && previousIndex != null, options.resume(), selector, shard);
+	}
 
-			articlesByTitles.put(article.fromTitle(), article);
-			articles.add(article);
+	/**
+	 * Migrates the given pages incrementally relative to the given manifest, or
+	 * completely if it is null, and returns the new manifest. The pages and the categories are
+	 * those of a complete enumeration of the wiki.
+	 */
+	public static ManifestRecord migrate(final Stream<MediaWikiPageRecord> pages,
+			final List<MediaWikiCategoryRecord> categories, final ManifestRecord previous)
+			throws IOException, InterruptedException {
+		return migrate(pages, CompletableFuture.completedFuture(categories), previous, previous, previous != null,
+				false, PageSelector.ALL, null);
+	}
+
+	/**
+	 * Migrates with a journal of the completed pages and a dead letter list of
+	 * the failed ones. The journal is kept if the run is aborted or pages failed,
+	 * so that a resumed run skips the pages completed so far.
+	 */
+	private static ManifestRecord migrate(final Stream<MediaWikiPageRecord> allPages,
+			final CompletableFuture<List<MediaWikiCategoryRecord>> allCategories, final ManifestRecord previous,
+			final ManifestRecord previousIndex, final boolean incremental, final boolean resume,
+			final PageSelector selector, final ShardRecord shard) throws IOException, InterruptedException {
+		try (Journal journal = new Journal(Path.of(shardPath(shard, Config.JOURNAL_PATH)), resume);
+				DeadLetterLog deadLetters = new DeadLetterLog(Path.of(shardPath(shard, Config.DEAD_LETTER_PATH)))) {
+			final ManifestRecord manifest = migrate(allPages, allCategories, previous, previousIndex, incremental,
+					selector, shard, journal, deadLetters);
+
+			if (deadLetters.count() == 0) {
+				journal.delete();
+			} else {
+				System.out.println("Warning: " + deadLetters.count() + " pages could not be migrated, see "
+						+ deadLetters.path() + ", run with --resume to retry them");
+			}
 
-			ArticleWriter.writeArticle(article);
+			return manifest;
 		}
+	}
 
-		for (final MediaWikiPageRecord page : redirects) {
-			final String url = page.url() + "&redirect=no";
+	/**
+	 * Migrates the selected pages of the shard, incrementally relative to the
+	 * given manifest or completely, and returns the new manifest. Pages that are
+	 * not selected are taken from the manifest. If some of them are not recorded
+	 * in it, only the selected articles are written and the previous manifest is
+	 * returned. previousIndex is the manifest that records all titles of the last
+	 * run, which is the previous manifest unless the run is sharded.
+	 *
+	 * All pages are enumerated and the redirects resolved before any page is
+	 * fetched, so that the index from titles to output paths is complete and
+	 * links can be rewritten while each page is converted. Every article is
+	 * written once, and its document is dropped right after.
+	 */
+	private static ManifestRecord migrate(final Stream<MediaWikiPageRecord> allPages,
+			final CompletableFuture<List<MediaWikiCategoryRecord>> allCategories, final ManifestRecord previous,
+			final ManifestRecord previousIndex, final boolean incremental, final PageSelector selector,
+			final ShardRecord shard, final Journal journal, final DeadLetterLog deadLetters)
+			throws IOException, InterruptedException {
+		final Path manifestPath = Path.of(shardPath(shard, Config.MANIFEST_PATH));
+
+		// categories are enumerated in the background while the pages are enumerated and fetched
+		final CompletableFuture<CategoryIndex> categoriesFuture = allCategories.thenApply(result -> {
+			System.out.println("Found " + result.size() + " categories");
+
+			return new CategoryIndex(CategoryUtils.sortCategories(result));
+		});
 
-			final String html = MediaWikiClient.getHtml(url);
-			final ArticleRecord article = onPageCreateArticle(html, url, true, categoriesSorted);
+		final Map<Boolean, List<MediaWikiPageRecord>> pagesByRedirect = allPages.filter(Main::isMigrated)
+				.collect(Collectors.partitioningBy(MediaWikiPageRecord::isRedirect));
+		final List<MediaWikiPageRecord> redirectPages = pagesByRedirect.get(true);
 
-			articlesByTitles.put(article.fromTitle(), article);
-			articles.add(article);
+		final Map<String, MediaWikiPageRecord> pagesByTitles = new LinkedHashMap<>();
+		pagesByRedirect.get(false).forEach(page -> pagesByTitles.put(ArticleReader.titleFromUrl(page.url()), page));
+
+		System.out.println("Found " + pagesByTitles.size() + " articles");
+
+		// redirects are not fetched, they are resolved through the API and point to the path of their target
+		final Map<String, String> redirectTargets = resolveRedirects(redirectPages, pagesByTitles.keySet());
+
+		System.out.println("Found " + redirectTargets.size() + " redirects");
+
+		final Map<String, String> pathsByTitles = new HashMap<>();
+
+		pagesByTitles.keySet().forEach(title -> pathsByTitles.put(title, ArticleUtils.determineArticlePath(title)));
+		redirectTargets.forEach((title, target) -> pathsByTitles.putIfAbsent(title,
+				pathsByTitles.get(targetTitle(target))));
+
+		final Set<String> affectedTitles = incremental
+				? affectedTitles(previousIndex, pagesByTitles.keySet(), redirectTargets)
+				: Set.of();
+
+		// the links of all pages are rewritten with the complete index, but only the pages of the shard are migrated
+		final Map<String, MediaWikiPageRecord> shardPagesByTitles = new LinkedHashMap<>();
+
+		pagesByTitles.forEach((title, page) -> {
+			if (shard == null || shard.contains(title)) {
+				shardPagesByTitles.put(title, page);
+			}
+		});
+
+		if (shard != null) {
+			System.out.println("Shard " + shard.index() + "/" + shard.count() + " has " + shardPagesByTitles.size()
+					+ " articles");
+		}
 
-			ArticleWriter.writeArticle(article);
+		// of which only the selected pages are converted
+		final Set<MediaWikiPageRecord> selectedPages = new HashSet<>();
+
+		shardPagesByTitles.forEach((title, page) -> {
+			if (selector.selects(title, page.namespace())) {
+				selectedPages.add(page);
+			}
+		});
+
+		final boolean complete = selector.isAll() || shardPagesByTitles.entrySet().stream()
+				.allMatch(entry -> selectedPages.contains(entry.getValue())
+						|| previous != null && previous.entries().containsKey(entry.getKey()));
+
+		if (!selector.isAll()) {
+			System.out.println("Selected " + selectedPages.size() + " articles");
+		}
+
+		final Iterator<MediaWikiPageRecord> pages = complete ? shardPagesByTitles.values().iterator()
+				: shardPagesByTitles.values().stream().filter(selectedPages::contains).iterator();
+
+		// the categories of the skinned pages are looked up in batches while the pages are fetched
+		final Iterator<Map.Entry<MediaWikiPageRecord, CompletableFuture<Map<String, List<String>>>>> pagesWithCategories =
+				BatchUtils.batched(pages, MediaWikiApiClient.TITLES_PER_REQUEST,
+						batch -> getPageCategoriesAsync(batch.stream().filter(selectedPages::contains).toList()));
+
+		final Map<String, Set<String>> linkedTitles = new ConcurrentHashMap<>();
+		final Set<String> failedTitles = ConcurrentHashMap.newKeySet();
+
+		// Pages are fetched, converted and written concurrently, results keep the page order
+		final List<ArticleRecord> articles = ConcurrencyUtils.mapConcurrently(() -> pagesWithCategories,
+				Config.CONCURRENCY, entry -> {
+					final MediaWikiPageRecord page = entry.getKey();
+					final CategoryIndex categories = ConcurrencyUtils.await(categoriesFuture);
+
+					if (!selectedPages.contains(page)) {
+						return recordedArticle(page, previous.entries().get(ArticleReader.titleFromUrl(page.url())),
+								categories);
+					}
+
+					final String title = ArticleReader.titleFromUrl(page.url());
+
+					try {
+						final JournalEntryRecord journaled = journal.get(title);
+
+						if (journaled != null && isJournaledOutputIntact(page, journaled)) {
+							linkedTitles.put(title, journaled.entry().links());
+
+							return recordedArticle(page, journaled.entry(), categories);
+						}
+
+						if (incremental) {
+							final ArticleRecord unchanged = readUnchangedArticle(page, previous, categories,
+									affectedTitles);
+
+							if (unchanged != null) {
+								return unchanged;
+							}
+						}
+
+						final ArticleRecord article = readArticle(page, entry.getValue(), categories,
+								pathsByTitles);
+						final ConvertedArticleRecord converted = ArticleWriter.writeArticle(article);
+
+						linkedTitles.put(article.fromTitle(), article.linkedTitles());
+
+						journal.append(new JournalEntryRecord(manifestEntry(article, page, article.linkedTitles()),
+								assetPaths(article, converted)));
+
+						return article.withoutContent();
+					} catch (final IOException | RuntimeException e) {
+						deadLetters.append(title, page.url(), ConcurrencyUtils.unwrap(e));
+						failedTitles.add(title);
+
+						// the output of the previous run is kept, the page is not migrated at all otherwise
+						final ManifestEntryRecord previousEntry = previous == null ? null
+								: previous.entries().get(title);
+
+						return previousEntry == null ? null : recordedArticle(page, previousEntry, categories);
+					}
+				}).stream().filter(Objects::nonNull).toList();
+
+		final CategoryIndex categoryIndex = ConcurrencyUtils.await(categoriesFuture);
+
+		if (incremental) {
+			System.out.println("Converted " + linkedTitles.size() + " new, changed or linking articles");
 		}
 
 		final Set<MediaWikiCategoryRecord> categoriesUsed = articles.stream().map(ArticleRecord::fromCategory)
@@ -96,12 +300,181 @@ public class Main {
 			CategoryWriter.writeCategory(category);
 		}
 
+		if (!complete) {
+			System.out.println("Not all pages that are not selected are recorded in the manifest, "
+					+ "keeping sidebar, Docusaurus configuration and manifest");
+
+			UrlRewriter.defaultRewriter().printHits();
+
+			return previous;
+		}
+
+		if (previous != null) {
+			deleteRemovedArticles(previous, articles);
+		}
+
+		final Map<String, ArticleRecord> articlesByTitles = new HashMap<>();
+
 		for (final ArticleRecord article : articles) {
-			DocumentUtils.rewriteLinks(article.elements(), articlesByTitles);
+			articlesByTitles.put(article.fromTitle(), article);
+		}
+
+		final Map<String, RedirectRecord> redirects = new LinkedHashMap<>();
+
+		// redirects to failed pages are dropped with their target, redirects to other shards are recorded there
+		redirectTargets.forEach((title, target) -> {
+			if (articlesByTitles.containsKey(targetTitle(target))) {
+				redirects.put(title, new RedirectRecord(articlesByTitles.get(targetTitle(target)), fragment(target)));
+			}
+		});
+
+		final String pageSetHash = pageSetHash(articles, redirects);
+
+		if (shard != null) {
+			System.out.println("Shard migrated, merge the manifests of all shards with --merge to write the sidebar "
+					+ "and Docusaurus configuration");
+		} else if ((incremental || !selector.isAll()) && previous != null
+				&& pageSetHash.equals(previous.pageSetHash())) {
+			System.out.println("Page set unchanged, keeping sidebar and Docusaurus configuration");
+		} else {
+			writeDocusaurusFiles(categoryIndex.categories(), articles, redirects);
+		}
+
+		final ManifestRecord manifest = createManifest(pageSetHash, articles, redirects, pagesByTitles,
+				enumerationOrder(pagesByTitles, redirectPages, redirectTargets), linkedTitles, failedTitles, previous);
+
+		ManifestUtils.write(manifestPath, manifest);
+
+		UrlRewriter.defaultRewriter().printHits();
+
+		System.out.println("Migration completed successfully!");
+
+		return manifest;
+	}
+
+	/**
+	 * Merges the manifests of the shards of a sharded run, writes sidebar and
+	 * Docusaurus configuration for all of their articles and redirects, and
+	 * records them in the manifest of an unsharded run. The wiki is not accessed.
+	 */
+	public static ManifestRecord merge(final List<String> manifestPaths) throws IOException {
+		final List<ManifestRecord> manifests = new ArrayList<>();
+
+		for (final String manifestPath : manifestPaths) {
+			final ManifestRecord manifest = ManifestUtils.read(Path.of(manifestPath));
+
+			if (manifest == null) {
+				throw new NoSuchFileException(manifestPath);
+			}
+
+			manifests.add(manifest);
+		}
+
+		final ManifestRecord manifest = mergeManifests(manifests);
+		final List<ArticleRecord> articles = recordedArticles(manifest);
+		final Map<String, RedirectRecord> redirects = recordedRedirects(manifest, articles);
+
+		System.out.println("Merged " + manifestPaths.size() + " manifests with " + articles.size() + " articles and "
+				+ redirects.size() + " redirects");
+
+		final List<MediaWikiCategoryRecord> categories = articles.stream().map(ArticleRecord::fromCategory)
+				.filter(Objects::nonNull).distinct().toList();
+
+		writeDocusaurusFiles(categories, articles, redirects);
+
+		ManifestUtils.write(Path.of(Config.MANIFEST_PATH), manifest);
+
+		return manifest;
+	}
+
+	/**
+	 * Merges the manifests of the shards into the manifest of an unsharded run,
+	 * with the articles and redirects in the order of their enumeration. Entries
+	 * of manifests that do not record the order follow, sorted by title.
+	 */
+	static ManifestRecord mergeManifests(final List<ManifestRecord> manifests) {
+		final Map<String, ManifestEntryRecord> entries = new HashMap<>();
+		final Map<String, String> redirectTargets = new HashMap<>();
+		final Map<String, ManifestOrderRecord> order = new HashMap<>();
+
+		for (final ManifestRecord manifest : manifests) {
+			manifest.entries().forEach((title, entry) -> {
+				if (entries.putIfAbsent(title, entry) != null) {
+					System.out.println(
+							"Warning: The page " + title + " is in more than one manifest, keeping the first");
+				} else if (manifest.order().containsKey(title)) {
+					order.put(title, manifest.order().get(title));
+				}
+			});
 
-			ArticleWriter.writeArticle(article);
+			manifest.redirects().forEach((title, target) -> {
+				if (redirectTargets.putIfAbsent(title, target) == null && manifest.order().containsKey(title)) {
+					order.put(title, manifest.order().get(title));
+				}
+			});
 		}
-		
+
+		final Comparator<String> enumerationOrder = Comparator
+				.comparing((final String title) -> order.containsKey(title) ? order.get(title).index()
+						: Integer.MAX_VALUE)
+				.thenComparing(title -> title.replace(' ', '_'));
+
+		final Map<String, ManifestEntryRecord> sortedEntries = new LinkedHashMap<>();
+
+		entries.keySet().stream().sorted(enumerationOrder)
+				.forEach(title -> sortedEntries.put(title, entries.get(title)));
+
+		final Map<String, String> sortedRedirectTargets = new LinkedHashMap<>();
+
+		redirectTargets.keySet().stream().sorted(enumerationOrder).forEach(title -> {
+			if (entries.containsKey(targetTitle(redirectTargets.get(title)))) {
+				sortedRedirectTargets.put(title, redirectTargets.get(title));
+			} else {
+				System.out.println("Warning: Skipping redirect " + title + ", its target is in none of the manifests");
+			}
+		});
+
+		final Map<String, ManifestOrderRecord> sortedOrder = new LinkedHashMap<>();
+
+		Stream.concat(sortedEntries.keySet().stream(), sortedRedirectTargets.keySet().stream())
+				.filter(order::containsKey).forEach(title -> sortedOrder.put(title, order.get(title)));
+
+		final ManifestRecord result = new ManifestRecord(null, sortedEntries, sortedRedirectTargets, sortedOrder);
+		final List<ArticleRecord> articles = recordedArticles(result);
+
+		return new ManifestRecord(pageSetHash(articles, recordedRedirects(result, articles)), sortedEntries,
+				sortedRedirectTargets, sortedOrder);
+	}
+
+	/**
+	 * Returns the articles recorded in the manifest, with the URLs of their pages
+	 * but without elements, assets and links.
+	 */
+	static List<ArticleRecord> recordedArticles(final ManifestRecord manifest) {
+		return manifest.entries().values().stream().map(entry -> {
+			final MediaWikiCategoryRecord category = entry.category() == null ? null
+					: new MediaWikiCategoryRecord(entry.category(), entry.category(), 0);
+			final ManifestOrderRecord order = manifest.order().get(entry.title());
+			final String url = order == null ? MediaWikiApiClient.pageUrl(entry.title()) : order.url();
+
+			return new ArticleRecord(entry.title(), url, entry.heading(), category, null, List.of(), Set.of());
+		}).toList();
+	}
+
+	private static Map<String, RedirectRecord> recordedRedirects(final ManifestRecord manifest,
+			final List<ArticleRecord> articles) {
+		final Map<String, ArticleRecord> articlesByTitles = new HashMap<>();
+		articles.forEach(article -> articlesByTitles.put(article.fromTitle(), article));
+
+		final Map<String, RedirectRecord> result = new LinkedHashMap<>();
+		manifest.redirects().forEach((title, target) -> result.put(title,
+				new RedirectRecord(articlesByTitles.get(targetTitle(target)), fragment(target))));
+
+		return result;
+	}
+
+	private static void writeDocusaurusFiles(final List<MediaWikiCategoryRecord> categories,
+			final List<ArticleRecord> articles, final Map<String, RedirectRecord> redirects) throws IOException {
 		// Group articles by category for Docusaurus sidebar
 		final Map<String, List<ArticleRecord>> articlesByCategory = new HashMap<>();
 		for (final ArticleRecord article : articles) {
@@ -110,144 +483,358 @@ public class Main {
 					: article.fromCategory().text();
 			articlesByCategory.computeIfAbsent(categoryText, k -> new ArrayList<>()).add(article);
 		}
-		
+
 		// Write Docusaurus configuration files
-		DocusaurusConfigWriter.writeSidebar(categoriesSorted, articlesByCategory);
-		DocusaurusConfigWriter.writeDocusaurusConfig(articles);
-		
-		System.out.println("Migration completed successfully!");
+		DocusaurusConfigWriter.writeSidebar(categories, articlesByCategory);
+		DocusaurusConfigWriter.writeDocusaurusConfig(articles, redirects);
 	}
 
-	private static ArticleRecord onPageCreateArticle(final String html, final String fromUrl, final boolean isRedirect,
-			final List<MediaWikiCategoryRecord> categories) {
-		final Document document = Jsoup.parse(html, fromUrl);
-		DocumentUtils.cleanDocument(document);
-
-		/*
-		 * title
-		 */
-		final Map<String, String> queryMap = UrlUtils.getQueryMapForUrl(fromUrl);
-
-		String fromTitle = queryMap.get("title");
-		
-		// If no title in query params, extract from URL path (e.g., /wiki/Page_Title)
-		if (fromTitle == null || fromTitle.isBlank()) {
-			try {
-				final String path = new java.net.URL(fromUrl).getPath();
-				// Extract title from /wiki/PageTitle format
-				if (path.contains("/wiki/")) {
-					fromTitle = path.substring(path.lastIndexOf("/wiki/") + 6);
-					// URL decode and replace underscores with spaces
-					fromTitle = java.net.URLDecoder.decode(fromTitle, java.nio.charset.StandardCharsets.UTF_8)
-							.replace("_", " ");
-				}
-			} catch (final Exception e) {
-				System.out.println("Warning: Could not extract title from URL: " + fromUrl);
+	private static String shardPath(final ShardRecord shard, final String path) {
+		return shard == null ? path : shard.path(path);
+	}
+
+	/**
+	 * Returns whether the page did not change since it was journaled, and its
+	 * output and assets are still there.
+	 */
+	private static boolean isJournaledOutputIntact(final MediaWikiPageRecord page, final JournalEntryRecord journaled)
+			throws IOException {
+		final ManifestEntryRecord entry = journaled.entry();
+
+		if (!Objects.equals(page.revisionId(), entry.revisionId()) || !Objects.equals(page.touched(), entry.touched())
+				|| entry.contentHash() == null
+				|| !entry.contentHash().equals(ManifestUtils.hashFile(Path.of(Config.BASE_PATH, entry.path())))) {
+			return false;
+		}
+
+		return journaled.assets().stream().allMatch(asset -> Files.exists(Path.of(Config.BASE_PATH, asset)));
+	}
+
+	/**
+	 * Returns the paths of the assets of the article that were written, relative
+	 * to the output directory.
+	 */
+	private static Set<String> assetPaths(final ArticleRecord article, final ConvertedArticleRecord converted) {
+		final Set<String> result = new LinkedHashSet<>();
+
+		for (final AssetRecord asset : converted.assets()) {
+			final Path path = Path.of(ArticleWriter.determineDirectoryPath(article), asset.fileName());
+
+			if (Files.exists(path)) {
+				result.add(Path.of(Config.BASE_PATH).relativize(path).toString());
 			}
 		}
-		
-		Objects.requireNonNull(fromTitle);
-
-		/*
-		 * heading
-		 */
-		final Elements firstHeadings = document.select("#firstHeading");
-		Objects.requireNonNull(firstHeadings);
-
-		final Element firstHeading = DocumentUtils.getFirst(firstHeadings);
-		Objects.requireNonNull(firstHeading);
-
-		final String fromFirstHeadingText = firstHeading.text();
-		Objects.requireNonNull(fromFirstHeadingText);
-
-		/*
-		 * primary category - extract from page or infer from title structure
-		 */
-		final List<String> pageCategories = document.select(".mw-normal-catlinks ul > li > a").stream().map(c -> {
-			return c.text();
-		}).filter(c -> {
-			return !CategoryUtils.CATEGORIES_EXCLUDED.contains(c);
-		}).collect(Collectors.toList());
-		
-		// Also try to extract category from title structure (e.g., "Magento_2_Extensions/Order_Export")
-		String inferredCategory = inferCategoryFromTitle(fromTitle);
-
-		final MediaWikiCategoryRecord fallback = isRedirect
-				? new MediaWikiCategoryRecord("Weiterleitung", "Weiterleitung", 0)
-				: new MediaWikiCategoryRecord(inferredCategory != null ? inferredCategory : "General Information", 
-				                              inferredCategory != null ? inferredCategory : "General Information", 0);
-
-		final MediaWikiCategoryRecord fromCategory = categories.stream().filter(c -> {
-			return pageCategories.contains(c.text());
-		}).findFirst().orElseGet(() -> {
-			// If no category found in page, try to match inferred category
-			if (inferredCategory != null) {
-				return categories.stream()
-					.filter(c -> c.text() != null && c.text().equalsIgnoreCase(inferredCategory))
-					.findFirst()
-					.orElse(fallback);
+
+		return result;
+	}
+
+	/**
+	 * Returns the article recorded in the manifest if neither the page nor the
+	 * written file changed since the last run and it does not link to an affected
+	 * title, or null if the page has to be migrated. The returned article has no
+	 * elements, no assets and no links.
+	 */
+	private static ArticleRecord readUnchangedArticle(final MediaWikiPageRecord page, final ManifestRecord previous,
+			final CategoryIndex categories, final Set<String> affectedTitles) throws IOException {
+		final ManifestEntryRecord entry = previous.entries().get(ArticleReader.titleFromUrl(page.url()));
+
+		if (entry == null || page.revisionId() == null || page.touched() == null
+				|| !page.revisionId().equals(entry.revisionId()) || !page.touched().equals(entry.touched())) {
+			return null;
+		}
+
+		// the output was changed or removed outside of the migration
+		if (entry.contentHash() == null
+				|| !entry.contentHash().equals(ManifestUtils.hashFile(Path.of(Config.BASE_PATH, entry.path())))) {
+			return null;
+		}
+
+		// links to added or removed titles are rewritten differently now
+		if (entry.links().stream().anyMatch(link -> affectedTitles.contains(normalizeTitle(link)))) {
+			return null;
+		}
+
+		return recordedArticle(page, entry, categories);
+	}
+
+	/**
+	 * Returns the article as recorded in the manifest, without elements, assets
+	 * and links.
+	 */
+	private static ArticleRecord recordedArticle(final MediaWikiPageRecord page, final ManifestEntryRecord entry,
+			final CategoryIndex categories) {
+		MediaWikiCategoryRecord category = null;
+
+		if (entry.category() != null) {
+			category = categories.findIgnoreCase(entry.category());
+
+			if (category == null) {
+				category = new MediaWikiCategoryRecord(entry.category(), entry.category(), 0);
+			}
+		}
+
+		return new ArticleRecord(entry.title(), page.url(), entry.heading(), category, null, List.of(), Set.of());
+	}
+
+	/**
+	 * Returns the normalized titles that were added, removed, or redirect
+	 * somewhere else since the last run.
+	 */
+	private static Set<String> affectedTitles(final ManifestRecord previous, final Set<String> articleTitles,
+			final Map<String, String> redirectTargets) {
+		final Map<String, String> titles = new HashMap<>();
+
+		articleTitles.forEach(title -> titles.put(normalizeTitle(title), title));
+		redirectTargets.forEach((title, target) -> titles.put(normalizeTitle(title), target));
+
+		final Map<String, String> previousTitles = new HashMap<>();
+
+		previous.entries().keySet().forEach(title -> previousTitles.put(normalizeTitle(title), title));
+		previous.redirects().forEach((title, target) -> previousTitles.put(normalizeTitle(title), target));
+
+		final Set<String> result = new HashSet<>();
+
+		titles.forEach((title, target) -> {
+			if (!target.equals(previousTitles.get(title))) {
+				result.add(title);
 			}
-			return fallback;
 		});
 
-		/*
-		 * article body
-		 */
-		final Elements parserOutput = document.select(".mw-parser-output");
-		if (parserOutput.isEmpty()) {
-			// Fallback: Try to find content in #bodyContent if .mw-parser-output is not found
-			final Element bodyContent = document.selectFirst("#bodyContent");
-			if (bodyContent != null) {
-				final Elements bodyContentElements = new org.jsoup.select.Elements(bodyContent);
-				final Map<String, AssetRecord> assetRecords = AssetUtils.rewriteAssets(bodyContentElements);
-				
-				return new ArticleRecord(fromTitle, fromUrl, fromFirstHeadingText, fromCategory, 
-						bodyContentElements, assetRecords.values());
+		previousTitles.keySet().stream().filter(title -> !titles.containsKey(title)).forEach(result::add);
+
+		return result;
+	}
+
+	/**
+	 * Deletes the files of the articles that are no longer migrated, e.g. because
+	 * their page was deleted or moved.
+	 */
+	private static void deleteRemovedArticles(final ManifestRecord previous, final List<ArticleRecord> articles)
+			throws IOException {
+		final Set<String> titles = articles.stream().map(ArticleRecord::fromTitle).collect(Collectors.toSet());
+
+		for (final ManifestEntryRecord entry : previous.entries().values()) {
+			if (titles.contains(entry.title())) {
+				continue;
+			}
+
+			final Path path = Path.of(Config.BASE_PATH, entry.path());
+
+			System.out.println("Deleting article " + path);
+
+			Files.deleteIfExists(path);
+
+			// assets of the article are kept unless its directory is empty now
+			try (Stream<Path> files = Files.list(path.getParent())) {
+				if (files.findAny().isEmpty()) {
+					Files.delete(path.getParent());
+				}
+			} catch (final IOException e) {
+				System.out.println("Warning: Could not clean up " + path.getParent() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	static String pageSetHash(final List<ArticleRecord> articles, final Map<String, RedirectRecord> redirects) {
+		final List<String> lines = new ArrayList<>();
+
+		for (final ArticleRecord article : articles) {
+			lines.add(String.join("\t", "page", article.fromTitle(),
+					article.fromCategory() == null ? "" : String.valueOf(article.fromCategory().text()),
+					article.fromHeading()));
+		}
+
+		redirects.forEach((title, redirect) -> lines.add(String.join("\t", "redirect", title, redirect.toTitle())));
+
+		return ManifestUtils.hashLines(lines);
+	}
+
+	/**
+	 * Returns the position of each article and each redirect in the enumeration,
+	 * and the URL of its page.
+	 */
+	static Map<String, ManifestOrderRecord> enumerationOrder(final Map<String, MediaWikiPageRecord> pagesByTitles,
+			final List<MediaWikiPageRecord> redirectPages, final Map<String, String> redirectTargets) {
+		final Map<String, ManifestOrderRecord> result = new HashMap<>();
+		int index = 0;
+
+		for (final Map.Entry<String, MediaWikiPageRecord> entry : pagesByTitles.entrySet()) {
+			result.put(entry.getKey(), new ManifestOrderRecord(index++, entry.getValue().url()));
+		}
+
+		final Map<String, String> redirectUrls = new HashMap<>();
+		redirectPages.forEach(page -> redirectUrls.put(titleOf(page), page.url()));
+
+		index = 0;
+
+		for (final String title : redirectTargets.keySet()) {
+			result.put(title, new ManifestOrderRecord(index++, redirectUrls.get(title)));
+		}
+
+		return result;
+	}
+
+	static ManifestRecord createManifest(final String pageSetHash, final List<ArticleRecord> articles,
+			final Map<String, RedirectRecord> redirects, final Map<String, MediaWikiPageRecord> pagesByTitles,
+			final Map<String, ManifestOrderRecord> order, final Map<String, Set<String>> linkedTitles,
+			final Set<String> failedTitles, final ManifestRecord previous) throws IOException {
+		final Map<String, ManifestEntryRecord> entries = new LinkedHashMap<>();
+
+		for (final ArticleRecord article : articles) {
+			final ManifestEntryRecord previousEntry = previous == null ? null
+					: previous.entries().get(article.fromTitle());
+
+			// failed pages keep the entry of their previous output, so that the next run retries them
+			if (failedTitles.contains(article.fromTitle())) {
+				entries.put(article.fromTitle(), previousEntry);
+				continue;
 			}
+
+			Set<String> links = linkedTitles.get(article.fromTitle());
+
+			if (links == null) {
+				links = previousEntry == null ? Set.of() : previousEntry.links();
+			}
+
+			entries.put(article.fromTitle(), manifestEntry(article, pagesByTitles.get(article.fromTitle()), links));
 		}
-		Objects.requireNonNull(parserOutput);
-
-		final Map<String, AssetRecord> assetRecords = AssetUtils.rewriteAssets(parserOutput);
-
-		/*
-		 * markdown
-		 */
-		return new ArticleRecord(fromTitle, fromUrl, fromFirstHeadingText, fromCategory, parserOutput,
-				assetRecords.values());
-	}
-	
-	/**
-	 * Infer category from title structure.
-	 * Titles like "Magento_2_Extensions/Order_Export" should be categorized as "Magento 2 Extensions"
-	 */
-	private static String inferCategoryFromTitle(final String title) {
-		if (title == null) return null;
-		
-		// Check for known category prefixes in title
-		final String normalizedTitle = title.replace("_", " ");
-		
-		// Known category mappings
-		final String[][] knownCategories = {
-			{"Magento 2 Extensions", "Magento 2 Extensions"},
-			{"Magento Extensions", "Magento Extensions"},
-			{"Magento Integration Suite", "Magento Integration Suite"},
-			{"Product Feed Setup", "Product Feed Setup"},
-			{"Connectors", "Connectors"},
-			{"Private", "Private"},
-			{"Feed Wizard", "Feed Wizard"},
-			{"Troubleshooting", "Troubleshooting"},
-			{"FTP", "General Information"},
-			{"Order Export", "General Information"},
-			{"Error", "Troubleshooting"},
-			{"AOE Scheduler", "General Information"},
-		};
-		
-		for (final String[] mapping : knownCategories) {
-			if (normalizedTitle.startsWith(mapping[0] + "/") || normalizedTitle.startsWith(mapping[0] + ":")) {
-				return mapping[1];
+
+		final Map<String, String> redirectTargets = new LinkedHashMap<>();
+
+		redirects.forEach((title, redirect) -> redirectTargets.put(title, redirect.toTitle()));
+
+		// recorded so that the manifests of shards can be merged in the order of the enumeration
+		final Map<String, ManifestOrderRecord> manifestOrder = new LinkedHashMap<>();
+
+		Stream.concat(entries.keySet().stream(), redirectTargets.keySet().stream()).filter(order::containsKey)
+				.forEach(title -> manifestOrder.put(title, order.get(title)));
+
+		return new ManifestRecord(pageSetHash, entries, redirectTargets, manifestOrder);
+	}
+
+	private static ManifestEntryRecord manifestEntry(final ArticleRecord article, final MediaWikiPageRecord page,
+			final Set<String> links) throws IOException {
+		final Path path = ArticleWriter.determineFilePath(article);
+
+		return new ManifestEntryRecord(article.fromTitle(), page.pageId(), page.revisionId(), page.touched(),
+				Path.of(Config.BASE_PATH).relativize(path).toString(),
+				article.fromCategory() == null ? null : article.fromCategory().text(), article.fromHeading(),
+				ManifestUtils.hashFile(path), links);
+	}
+
+	private static String normalizeTitle(final String title) {
+		return title.replace('_', ' ');
+	}
+
+	/**
+	 * Maps the titles of the redirect pages to the titles of the articles they
+	 * point to, followed by # and the section if they point to one. Redirects to
+	 * pages that are not migrated are dropped.
+	 */
+	private static Map<String, String> resolveRedirects(final List<MediaWikiPageRecord> redirectPages,
+			final Set<String> articleTitles) throws IOException, InterruptedException {
+		final Map<String, String> articleTitlesByNormalizedTitles = new HashMap<>();
+
+		for (final String articleTitle : articleTitles) {
+			articleTitlesByNormalizedTitles.put(normalizeTitle(articleTitle), articleTitle);
+		}
+
+		final List<String> titles = redirectPages.stream().map(Main::titleOf).toList();
+		final Map<String, String> targets;
+
+		try {
+			targets = ConcurrencyUtils.await(MediaWikiApiClient.resolveRedirectsAsync(titles));
+		} catch (final IOException | RuntimeException e) {
+			System.out.println("Warning: Could not resolve redirects, skipping them: " + e.getMessage());
+			return Map.of();
+		}
+
+		final Map<String, String> result = new LinkedHashMap<>();
+
+		for (final String title : titles) {
+			final String target = targets.get(title);
+			final String articleTitle = target == null ? null : articleTitlesByNormalizedTitles.get(targetTitle(target));
+
+			if (articleTitle == null) {
+				System.out.println("Warning: Skipping redirect " + title + " to " + target + ", target is not migrated");
+			} else {
+				result.put(title, fragment(target) == null ? articleTitle : articleTitle + "#" + fragment(target));
 			}
 		}
-		
-		return null;
+
+		return result;
+	}
+
+	/**
+	 * Returns the title of a redirect target without its section.
+	 */
+	private static String targetTitle(final String target) {
+		final int hash = target.indexOf('#');
+
+		return hash < 0 ? target : target.substring(0, hash);
+	}
+
+	/**
+	 * Returns the section of a redirect target, or null if it has none.
+	 */
+	private static String fragment(final String target) {
+		final int hash = target.indexOf('#');
+
+		return hash < 0 ? null : target.substring(hash + 1);
+	}
+
+	private static String titleOf(final MediaWikiPageRecord page) {
+		return page.title() != null ? page.title() : ArticleReader.titleFromUrl(page.url());
+	}
+
+	/**
+	 * Looks up the categories of a batch of pages. With action=parse the
+	 * categories are part of the parse result and need no lookup.
+	 */
+	private static CompletableFuture<Map<String, List<String>>> getPageCategoriesAsync(
+			final List<MediaWikiPageRecord> pages) {
+		if (Config.FETCH_MODE == FetchMode.PARSE) {
+			return CompletableFuture.completedFuture(Map.of());
+		}
+
+		return MediaWikiApiClient.getPageCategoriesAsync(pages.stream().map(Main::titleOf).toList())
+				.exceptionally(e -> {
+					System.out.println("Warning: Could not look up the categories of " + pages.size() + " pages: "
+							+ ConcurrencyUtils.unwrap(e).getMessage());
+
+					return Map.of();
+				});
+	}
+
+	private static ArticleRecord readArticle(final MediaWikiPageRecord page,
+			final CompletableFuture<Map<String, List<String>>> pageCategoriesFuture, final CategoryIndex categories,
+			final Map<String, String> pathsByTitles) throws IOException, InterruptedException {
+		if (Config.FETCH_MODE == FetchMode.PARSE) {
+			final MediaWikiParsedPageRecord parsed = ConcurrencyUtils
+					.await(MediaWikiApiClient.parseAsync(titleOf(page)));
+
+			return ArticleReader.readArticle(parsed, page.url(), page.isRedirect(), categories, pathsByTitles);
+		}
+
+		final String url = page.isRedirect() ? page.url() + (page.url().contains("?") ? "&" : "?") + "redirect=no"
+				: page.url();
+
+		final Document document = MediaWikiClient.getContentDocument(url, url);
+
+		final List<String> pageCategories = ConcurrencyUtils.await(pageCategoriesFuture).getOrDefault(titleOf(page),
+				List.of());
+
+		return ArticleReader.readArticle(document, url, page.isRedirect(), pageCategories, categories,
+				pathsByTitles);
+	}
+
+	/**
+	 * Filters out Special:, Category: pages and ignored pages (based on URL
+	 * pattern).
+	 */
+	private static boolean isMigrated(final MediaWikiPageRecord page) {
+		return !page.url().contains("/Special:") && !page.url().contains("/Category:")
+				&& !page.url().contains("title=Special:") && !page.url().contains("title=Category:")
+				&& IGNORE_LIST.stream().noneMatch(ignore -> page.url().contains(ignore));
 	}
 }
@@ -0,0 +1,106 @@
+package org.markomannia.mw2d;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.markomannia.mw2d.selection.PageSelectionRecord;
+import org.markomannia.mw2d.selection.ShardRecord;
+
+/**
+ * Options of a migration run, parsed from the command line. shard is null
+ * unless only one shard of the pages is migrated. If manifests to merge are
+ * given, the run merges them instead of migrating.
+ */
+public record MigrationOptions(boolean incremental, boolean resume, boolean daemon, PageSelectionRecord selection,
+		ShardRecord shard, List<String> mergedManifests) {
+
+	public static MigrationOptions parse(final String[] args) {
+		boolean incremental = false;
+		boolean resume = false;
+		boolean daemon = false;
+		final List<String> includes = new ArrayList<>();
+		final List<String> excludes = new ArrayList<>();
+		final Set<Integer> namespaces = new HashSet<>();
+		final List<String> categories = new ArrayList<>();
+		String titlesFile = null;
+		ShardRecord shard = null;
+		final List<String> mergedManifests = new ArrayList<>();
+
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "--incremental":
+				incremental = true;
+				break;
+			case "--resume":
+				resume = true;
+				break;
+			case "--daemon":
+				daemon = true;
+				break;
+			case "--include":
+				includes.add(value(args, ++i));
+				break;
+			case "--exclude":
+				excludes.add(value(args, ++i));
+				break;
+			case "--namespace":
+				for (final String namespace : value(args, ++i).split(",")) {
+					final Integer id;
+
+					try {
+						id = Integer.valueOf(namespace.trim());
+					} catch (final NumberFormatException e) {
+						throw new IllegalArgumentException("Invalid namespace ID " + namespace);
+					}
+
+					// pages of other namespaces would be removed by the next run that does not select them
+					if (!Config.NAMESPACES.contains(id)) {
+						throw new IllegalArgumentException(
+								"Namespace " + id + " is not migrated, migrated namespaces are " + Config.NAMESPACES);
+					}
+
+					namespaces.add(id);
+				}
+				break;
+			case "--category":
+				categories.add(value(args, ++i));
+				break;
+			case "--titles-file":
+				titlesFile = value(args, ++i);
+				break;
+			case "--shard":
+				shard = ShardRecord.parse(value(args, ++i));
+				break;
+			case "--merge":
+				mergedManifests.add(value(args, ++i));
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		final PageSelectionRecord selection = new PageSelectionRecord(List.copyOf(includes), List.copyOf(excludes),
+				Set.copyOf(namespaces), List.copyOf(categories), titlesFile);
+
+		if (daemon && (!selection.isAll() || shard != null)) {
+			throw new IllegalArgumentException(
+					"The daemon always syncs all pages, it cannot be combined with a selection or shard");
+		}
+
+		if (!mergedManifests.isEmpty() && args.length != mergedManifests.size() * 2) {
+			throw new IllegalArgumentException("--merge cannot be combined with other options");
+		}
+
+		return new MigrationOptions(incremental, resume, daemon, selection, shard, List.copyOf(mergedManifests));
+	}
+
+	private static String value(final String[] args, final int index) {
+		if (index >= args.length) {
+			throw new IllegalArgumentException("Missing value of option " + args[index - 1]);
+		}
+
+		return args[index];
+	}
+}
@@ -0,0 +1,241 @@
+package org.markomannia.mw2d.articles;
+
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.markdown.MarkdownPostProcessor;
+import org.markomannia.mw2d.markdown.MarkdownRenderer;
+import org.markomannia.mw2d.markdown.RendererMode;
+
+import io.github.furstenheim.CopyDown;
+import io.github.furstenheim.Options;
+import io.github.furstenheim.OptionsBuilder;
+
+/**
+ * Converts articles to markdown. The converter is thread-safe: the options
+ * are shared, every thread gets its own CopyDown instance, and the code block
+ * and table markers of a conversion are kept in a context of their own.
+ */
+public class ArticleConverter {
+
+	/**
+	 * State of a single conversion.
+	 */
+	private static class Context {
+
+		private final java.util.Map<String, String> codeBlocks = new java.util.LinkedHashMap<>();
+
+		private int codeBlockCounter = 0;
+
+		private final java.util.Map<String, String> tables = new java.util.LinkedHashMap<>();
+
+		private int tableCounter = 0;
+	}
+
+	private final RendererMode rendererMode;
+
+	private final ThreadLocal<CopyDown> copyDown;
+
+	public ArticleConverter() {
+		this(Config.RENDERER_MODE);
+	}
+
+	public ArticleConverter(final RendererMode rendererMode) {
+		// Configure CopyDown to use fenced code blocks instead of indented
+		this(rendererMode,
+				OptionsBuilder.anOptions().withCodeBlockStyle(io.github.furstenheim.CodeBlockStyle.FENCED).build());
+	}
+
+	public ArticleConverter(final RendererMode rendererMode, final Options options) {
+		this.rendererMode = rendererMode;
+		this.copyDown = ThreadLocal.withInitial(() -> new CopyDown(options));
+	}
+
+	private static final String MARKER = "_MARKER_";
+
+	private static final String CODE_BLOCK_MARKER = "___CODEBLOCK" + MARKER;
+
+	/**
+	 * Extract <pre> tags and replace with markers before CopyDown processing.
+	 * Returns the modified HTML.
+	 */
+	private static String extractCodeBlocks(final String html, final Context context) {
+		String result = html;
+		
+		java.util.regex.Pattern prePattern = java.util.regex.Pattern.compile(
+			"<pre[^>]*>([\\s\\S]*?)</pre>",
+			java.util.regex.Pattern.CASE_INSENSITIVE
+		);
+		
+		java.util.regex.Matcher matcher = prePattern.matcher(result);
+		StringBuffer sb = new StringBuffer();
+		
+		while (matcher.find()) {
+			String content = matcher.group(1);
+			// Clean up the content - remove inner <code> tags if present
+			content = content.replaceAll("</?code[^>]*>", "");
+			// HTML entity decode common entities
+			content = content.replace("&lt;", "<").replace("&gt;", ">")
+			                 .replace("&amp;", "&").replace("&quot;", "\"");
+			
+			String markerId = CODE_BLOCK_MARKER + (context.codeBlockCounter++) + "___";
+			context.codeBlocks.put(markerId, content.trim());
+			
+			matcher.appendReplacement(sb, java.util.regex.Matcher.quoteReplacement("\n\n" + markerId + "\n\n"));
+		}
+		matcher.appendTail(sb);
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * Restore code blocks from markers to fenced markdown code blocks.
+	 */
+	private static String restoreCodeBlocks(final String markdown, final Context context) {
+		String result = markdown;
+		
+		for (java.util.Map.Entry<String, String> entry : context.codeBlocks.entrySet()) {
+			String marker = entry.getKey();
+			String code = entry.getValue();
+			String fencedBlock = "\n```\n" + code + "\n```\n";
+			result = result.replace(marker, fencedBlock);
+		}
+		
+		return result;
+	}
+
+	private static final String TABLE_MARKER = "___TABLE" + MARKER;
+
+	/**
+	 * Convert HTML tables to GFM Markdown tables before CopyDown processing.
+	 * CopyDown doesn't support tables natively, so we handle them separately.
+	 * We use markers to preserve the table formatting through CopyDown.
+	 */
+	private static String convertTablesToMarkdown(final String html, final Context context) {
+		org.jsoup.nodes.Document doc = org.jsoup.Jsoup.parse(html);
+		
+		for (org.jsoup.nodes.Element table : doc.select("table")) {
+			StringBuilder md = new StringBuilder();
+			
+			org.jsoup.select.Elements rows = table.select("tr");
+			boolean headerDone = false;
+			int columnCount = 0;
+			
+			for (org.jsoup.nodes.Element row : rows) {
+				org.jsoup.select.Elements cells = row.select("th, td");
+				
+				if (cells.isEmpty()) continue;
+				
+				// Track column count from first row
+				if (columnCount == 0) {
+					columnCount = cells.size();
+				}
+				
+				md.append("|");
+				for (org.jsoup.nodes.Element cell : cells) {
+					String text = cell.text().trim().replace("|", "\\|").replace("\n", " ");
+					md.append(" ").append(text).append(" |");
+				}
+				md.append("\n");
+				
+				// Add separator row after first row (header)
+				if (!headerDone) {
+					md.append("|");
+					for (int i = 0; i < columnCount; i++) {
+						md.append(" --- |");
+					}
+					md.append("\n");
+					headerDone = true;
+				}
+			}
+			
+			// Store the table markdown and replace with marker
+			String markerId = TABLE_MARKER + (context.tableCounter++) + "___";
+			context.tables.put(markerId, md.toString());
+			
+			// Replace table with a pre element containing the marker (pre is preserved by CopyDown)
+			table.replaceWith(new org.jsoup.nodes.Element("div").text(markerId));
+		}
+		
+		return doc.body().html();
+	}
+	
+	/**
+	 * Restore tables from markers to actual markdown tables.
+	 */
+	private static String restoreTables(final String markdown, final Context context) {
+		String result = markdown;
+		
+		for (java.util.Map.Entry<String, String> entry : context.tables.entrySet()) {
+			String marker = entry.getKey();
+			String table = entry.getValue();
+			result = result.replace(marker, "\n\n" + table + "\n");
+		}
+		
+		return result;
+	}
+
+	/**
+	 * Converts the body with CopyDown, with tables and code blocks replaced by
+	 * markers of the context.
+	 */
+	private String convertWithCopyDown(final ArticleRecord article, final Context context) {
+		final String rawHtml = article.elements().html();
+		
+		// Convert tables to markdown before CopyDown
+		final String htmlWithTables = convertTablesToMarkdown(rawHtml, context);
+		
+		// Extract code blocks before CopyDown processing
+		final String html = extractCodeBlocks(htmlWithTables, context);
+		
+		return copyDown.get().convert(html);
+	}
+
+	/**
+	 * Converts the article to markdown. Can be called by several threads at the
+	 * same time, the markers of an invocation are kept in its own context.
+	 */
+	public ConvertedArticleRecord convert(final ArticleRecord article) {
+		final Context context = new Context();
+		final String parserOutputMarkdown = rendererMode == RendererMode.NATIVE
+				? MarkdownRenderer.render(article.elements())
+				: convertWithCopyDown(article, context);
+		
+		// Create Docusaurus frontmatter
+		final StringBuilder frontmatter = new StringBuilder();
+		// Strip category prefix from title if present (e.g., "Magento 2 Extensions:Advanced Order Status" -> "Advanced Order Status")
+		String cleanTitle = article.fromHeading();
+		if (cleanTitle.contains(":")) {
+			int colonIndex = cleanTitle.indexOf(':');
+			String beforeColon = cleanTitle.substring(0, colonIndex);
+			// Only strip if it looks like a category prefix (contains "Magento", "Extensions", "Integration", etc.)
+			if (beforeColon.contains("Magento") || beforeColon.contains("Extensions") || 
+			    beforeColon.contains("Integration") || beforeColon.contains("Connectors") ||
+			    beforeColon.contains("Product Feed") || beforeColon.contains("General")) {
+				cleanTitle = cleanTitle.substring(colonIndex + 1).trim();
+			}
+		}
+		
+		frontmatter.append("---\n");
+		frontmatter.append("title: \"").append(cleanTitle.replace("\"", "\\\"")).append("\"\n");
+		
+		// Make Main_Page the homepage with slug: / and show sidebar
+		if (article.fromTitle().equals("Main_Page") || article.fromTitle().equals("Main Page")) {
+			frontmatter.append("slug: /\n");
+			frontmatter.append("displayed_sidebar: mainSidebar\n");
+		}
+		
+		if (article.fromCategory() != null && article.fromCategory().text() != null && !article.fromCategory().text().isEmpty()) {
+			frontmatter.append("sidebar_label: \"").append(cleanTitle.replace("\"", "\\\"")).append("\"\n");
+		}
+		
+		frontmatter.append("---\n\n");
+		
+		final String header = frontmatter.toString() + "# " + cleanTitle + "\n\n";
+
+		// Remove remaining HTML tags, rewrite links and restore the code blocks and
+		// tables from their markers BEFORE MDX escaping, in a single pass
+		final String markdown = MarkdownPostProcessor.process(header, parserOutputMarkdown,
+				line -> line.contains(MARKER) ? restoreTables(restoreCodeBlocks(line, context), context) : line);
+
+		return new ConvertedArticleRecord(markdown, article.assets());
+	}
+}
@@ -0,0 +1,170 @@
+package org.markomannia.mw2d.articles;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.markomannia.mw2d.categories.CategoryIndex;
+import org.markomannia.mw2d.categories.util.CategoryUtils;
+import org.markomannia.mw2d.client.MediaWikiCategoryRecord;
+import org.markomannia.mw2d.client.MediaWikiParsedPageRecord;
+import org.markomannia.mw2d.document.DocumentProcessor;
+import org.markomannia.mw2d.document.util.DocumentUtils;
+import org.markomannia.mw2d.util.UrlUtils;
+
+public class ArticleReader {
+
+	/**
+	 * Reads an article from the skinned HTML page. The categories of the page are
+	 * looked up separately, the category links are not part of the cleaned page.
+	 * Links to wiki pages are rewritten to pathsByTitles.
+	 */
+	public static ArticleRecord readArticle(final Document document, final String fromUrl, final boolean isRedirect,
+			final List<String> categoriesOfPage, final CategoryIndex categories,
+			final Map<String, String> pathsByTitles) {
+		/*
+		 * title
+		 */
+		final String fromTitle = titleFromUrl(fromUrl);
+		Objects.requireNonNull(fromTitle);
+
+		/*
+		 * heading
+		 */
+		final Elements firstHeadings = document.select("#firstHeading");
+		Objects.requireNonNull(firstHeadings);
+
+		final Element firstHeading = DocumentUtils.getFirst(firstHeadings);
+		Objects.requireNonNull(firstHeading, "No #firstHeading in " + fromUrl);
+
+		final String fromFirstHeadingText = firstHeading.text();
+		Objects.requireNonNull(fromFirstHeadingText);
+
+		/*
+		 * primary category - extract from page or infer from title structure
+		 */
+		final List<String> pageCategories = categoriesOfPage.stream().filter(c -> {
+			return !CategoryUtils.CATEGORIES_EXCLUDED.contains(c);
+		}).collect(Collectors.toList());
+
+		final MediaWikiCategoryRecord fromCategory = selectCategory(fromTitle, pageCategories, isRedirect, categories);
+
+		/*
+		 * article body
+		 */
+		final Elements parserOutput = document.select(".mw-parser-output");
+		if (parserOutput.isEmpty()) {
+			// Fallback: Try to find content in #bodyContent if .mw-parser-output is not found
+			final Element bodyContent = document.selectFirst("#bodyContent");
+			if (bodyContent != null) {
+				final Elements bodyContentElements = new Elements(bodyContent);
+				final DocumentProcessor.Pass pass = DocumentUtils.preprocess(bodyContentElements, pathsByTitles);
+				
+				return new ArticleRecord(fromTitle, fromUrl, fromFirstHeadingText, fromCategory, 
+						bodyContentElements, pass.assets().values(), pass.linkedTitles());
+			}
+		}
+		Objects.requireNonNull(parserOutput);
+
+		final DocumentProcessor.Pass pass = DocumentUtils.preprocess(parserOutput, pathsByTitles);
+
+		/*
+		 * markdown
+		 */
+		return new ArticleRecord(fromTitle, fromUrl, fromFirstHeadingText, fromCategory, parserOutput,
+				pass.assets().values(), pass.linkedTitles());
+	}
+
+	/**
+	 * Reads an article from the result of action=parse. Heading and categories are
+	 * taken from the parse result instead of being scraped from the page. Links to
+	 * wiki pages are rewritten to pathsByTitles.
+	 */
+	public static ArticleRecord readArticle(final MediaWikiParsedPageRecord page, final String fromUrl,
+			final boolean isRedirect, final CategoryIndex categories, final Map<String, String> pathsByTitles) {
+		final Document document = page.document();
+
+		/*
+		 * title
+		 */
+		final String fromTitle = titleFromUrl(fromUrl);
+		Objects.requireNonNull(fromTitle);
+
+		/*
+		 * primary category
+		 */
+		final List<String> pageCategories = page.categories().stream().filter(c -> {
+			return !CategoryUtils.CATEGORIES_EXCLUDED.contains(c);
+		}).collect(Collectors.toList());
+
+		final MediaWikiCategoryRecord fromCategory = selectCategory(fromTitle, pageCategories, isRedirect, categories);
+
+		/*
+		 * article body
+		 */
+		Elements parserOutput = document.select(".mw-parser-output");
+		if (parserOutput.isEmpty()) {
+			parserOutput = new Elements(document.body());
+		}
+
+		final DocumentProcessor.Pass pass = DocumentUtils.preprocess(parserOutput, pathsByTitles);
+
+		/*
+		 * markdown
+		 */
+		return new ArticleRecord(fromTitle, fromUrl, page.displayTitle(), fromCategory, parserOutput,
+				pass.assets().values(), pass.linkedTitles());
+	}
+
+	/**
+	 * Returns the title of the page from the title parameter of the URL, or from
+	 * its /wiki/ path.
+	 */
+	public static String titleFromUrl(final String fromUrl) {
+		final Map<String, String> queryMap = UrlUtils.getQueryMapForUrl(fromUrl);
+
+		String fromTitle = queryMap.get("title");
+		
+		// If no title in query params, extract from URL path (e.g., /wiki/Page_Title)
+		if (fromTitle == null || fromTitle.isBlank()) {
+			try {
+				final String path = new java.net.URL(fromUrl).getPath();
+				// Extract title from /wiki/PageTitle format
+				if (path.contains("/wiki/")) {
+					fromTitle = path.substring(path.lastIndexOf("/wiki/") + 6);
+					// URL decode and replace underscores with spaces
+					fromTitle = java.net.URLDecoder.decode(fromTitle, java.nio.charset.StandardCharsets.UTF_8)
+							.replace("_", " ");
+				}
+			} catch (final Exception e) {
+				System.out.println("Warning: Could not extract title from URL: " + fromUrl);
+			}
+		}
+
+		return fromTitle;
+	}
+
+	private static MediaWikiCategoryRecord selectCategory(final String fromTitle, final List<String> pageCategories,
+			final boolean isRedirect, final CategoryIndex categories) {
+		// Also try to extract category from title structure (e.g., "Magento_2_Extensions/Order_Export")
+		final String inferredCategory = categories.inferFromTitle(fromTitle);
+
+		final MediaWikiCategoryRecord fallback = isRedirect
+				? new MediaWikiCategoryRecord("Weiterleitung", "Weiterleitung", 0)
+				: new MediaWikiCategoryRecord(inferredCategory != null ? inferredCategory : "General Information", 
+				                              inferredCategory != null ? inferredCategory : "General Information", 0);
+
+		final MediaWikiCategoryRecord primary = categories.primary(pageCategories);
+		if (primary != null) {
+			return primary;
+		}
+
+		// If no category found in page, try to match inferred category
+		final MediaWikiCategoryRecord inferred = categories.findIgnoreCase(inferredCategory);
+		return inferred != null ? inferred : fallback;
+	}
+}
@@ -1,11 +1,21 @@
 package org.markomannia.mw2d.articles;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 import org.jsoup.select.Elements;
 import org.markomannia.mw2d.assets.AssetRecord;
 import org.markomannia.mw2d.client.MediaWikiCategoryRecord;
 
 public record ArticleRecord(String fromTitle, String fromUrl, String fromHeading, MediaWikiCategoryRecord fromCategory,
-		Elements elements, Collection<AssetRecord> assets) {
+		Elements elements, Collection<AssetRecord> assets, Set<String> linkedTitles) {
+
+	/**
+	 * Returns the article without elements, assets and links, so that its document can
+	 * be garbage collected once the article is written.
+	 */
+	public ArticleRecord withoutContent() {
+		return new ArticleRecord(fromTitle, fromUrl, fromHeading, fromCategory, null, List.of(), Set.of());
+	}
 }
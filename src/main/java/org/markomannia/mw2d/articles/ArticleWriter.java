@@ -6,210 +6,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.markomannia.mw2d.Config;
 import org.markomannia.mw2d.articles.util.ArticleUtils;
 import org.markomannia.mw2d.assets.AssetRecord;
 import org.markomannia.mw2d.client.MediaWikiClient;
-import org.markomannia.mw2d.extensions.youtube.YoutubeRewriter;
-import org.markomannia.mw2d.markdown.util.MarkdownUtils;
-
-import io.github.furstenheim.CopyDown;
-import io.github.furstenheim.OptionsBuilder;
-import io.github.furstenheim.Options;
+import org.markomannia.mw2d.util.ConcurrencyUtils;
 
 public class ArticleWriter {
 
-	private static final String CODE_BLOCK_MARKER = "___CODEBLOCK_MARKER_";
-	private static final java.util.Map<String, String> codeBlockMap = new java.util.concurrent.ConcurrentHashMap<>();
-	private static int codeBlockCounter = 0;
-
-	/**
-	 * Extract <pre> tags and replace with markers before CopyDown processing.
-	 * Returns the modified HTML.
-	 */
-	private static String extractCodeBlocks(final String html) {
-		codeBlockMap.clear();
-		String result = html;
-		
-		java.util.regex.Pattern prePattern = java.util.regex.Pattern.compile(
-			"<pre[^>]*>([\\s\\S]*?)</pre>",
-			java.util.regex.Pattern.CASE_INSENSITIVE
-		);
-		
-		java.util.regex.Matcher matcher = prePattern.matcher(result);
-		StringBuffer sb = new StringBuffer();
-		
-		while (matcher.find()) {
-			String content = matcher.group(1);
-			// Clean up the content - remove inner <code> tags if present
-			content = content.replaceAll("</?code[^>]*>", "");
-			// HTML entity decode common entities
-			content = content.replace("&lt;", "<").replace("&gt;", ">")
-			                 .replace("&amp;", "&").replace("&quot;", "\"");
-			
-			String markerId = CODE_BLOCK_MARKER + (codeBlockCounter++) + "___";
-			codeBlockMap.put(markerId, content.trim());
-			
-			matcher.appendReplacement(sb, java.util.regex.Matcher.quoteReplacement("\n\n" + markerId + "\n\n"));
-		}
-		matcher.appendTail(sb);
-		
-		return sb.toString();
-	}
-	
-	/**
-	 * Restore code blocks from markers to fenced markdown code blocks.
-	 */
-	private static String restoreCodeBlocks(final String markdown) {
-		String result = markdown;
-		
-		for (java.util.Map.Entry<String, String> entry : codeBlockMap.entrySet()) {
-			String marker = entry.getKey();
-			String code = entry.getValue();
-			String fencedBlock = "\n```\n" + code + "\n```\n";
-			result = result.replace(marker, fencedBlock);
-		}
-		
-		return result;
-	}
-
-	private static final String TABLE_MARKER = "___TABLE_MARKER_";
-	private static final java.util.Map<String, String> tableMap = new java.util.concurrent.ConcurrentHashMap<>();
-	private static int tableCounter = 0;
-
-	/**
-	 * Convert HTML tables to GFM Markdown tables before CopyDown processing.
-	 * CopyDown doesn't support tables natively, so we handle them separately.
-	 * We use markers to preserve the table formatting through CopyDown.
-	 */
-	private static String convertTablesToMarkdown(final String html) {
-		tableMap.clear();
-		org.jsoup.nodes.Document doc = org.jsoup.Jsoup.parse(html);
-		
-		for (org.jsoup.nodes.Element table : doc.select("table")) {
-			StringBuilder md = new StringBuilder();
-			
-			org.jsoup.select.Elements rows = table.select("tr");
-			boolean headerDone = false;
-			int columnCount = 0;
-			
-			for (org.jsoup.nodes.Element row : rows) {
-				org.jsoup.select.Elements cells = row.select("th, td");
-				
-				if (cells.isEmpty()) continue;
-				
-				// Track column count from first row
-				if (columnCount == 0) {
-					columnCount = cells.size();
-				}
-				
-				md.append("|");
-				for (org.jsoup.nodes.Element cell : cells) {
-					String text = cell.text().trim().replace("|", "\\|").replace("\n", " ");
-					md.append(" ").append(text).append(" |");
-				}
-				md.append("\n");
-				
-				// Add separator row after first row (header)
-				if (!headerDone) {
-					md.append("|");
-					for (int i = 0; i < columnCount; i++) {
-						md.append(" --- |");
-					}
-					md.append("\n");
-					headerDone = true;
-				}
-			}
-			
-			// Store the table markdown and replace with marker
-			String markerId = TABLE_MARKER + (tableCounter++) + "___";
-			tableMap.put(markerId, md.toString());
-			
-			// Replace table with a pre element containing the marker (pre is preserved by CopyDown)
-			table.replaceWith(new org.jsoup.nodes.Element("div").text(markerId));
-		}
-		
-		return doc.body().html();
-	}
-	
-	/**
-	 * Restore tables from markers to actual markdown tables.
-	 */
-	private static String restoreTables(final String markdown) {
-		String result = markdown;
-		
-		for (java.util.Map.Entry<String, String> entry : tableMap.entrySet()) {
-			String marker = entry.getKey();
-			String table = entry.getValue();
-			result = result.replace(marker, "\n\n" + table + "\n");
-		}
-		
-		return result;
-	}
-
-	private static String createMarkdown(final ArticleRecord article) {
-		final String rawHtml = article.elements().html();
-		
-		// Convert tables to markdown before CopyDown
-		final String htmlWithTables = convertTablesToMarkdown(rawHtml);
-		
-		// Extract code blocks before CopyDown processing
-		final String html = extractCodeBlocks(htmlWithTables);
-		
-		// Configure CopyDown to use fenced code blocks instead of indented
-		final Options options = OptionsBuilder.anOptions()
-				.withCodeBlockStyle(io.github.furstenheim.CodeBlockStyle.FENCED)
-				.build();
-		final String parserOutputMarkdown = new CopyDown(options).convert(html);
-		
-		// Remove remaining HTML tags but preserve the content
-		// Be careful not to remove content inside code blocks - skip lines starting with ```
-		final String parserOutputMarkdownWithoutHtml = removeHtmlTagsPreservingCodeBlocks(parserOutputMarkdown);
-		final String parserOutputMarkdownWithFixedUnderline = parserOutputMarkdownWithoutHtml.replace("\\_", "_");
-
-		// Create Docusaurus frontmatter
-		final StringBuilder frontmatter = new StringBuilder();
-		// Strip category prefix from title if present (e.g., "Magento 2 Extensions:Advanced Order Status" -> "Advanced Order Status")
-		String cleanTitle = article.fromHeading();
-		if (cleanTitle.contains(":")) {
-			int colonIndex = cleanTitle.indexOf(':');
-			String beforeColon = cleanTitle.substring(0, colonIndex);
-			// Only strip if it looks like a category prefix (contains "Magento", "Extensions", "Integration", etc.)
-			if (beforeColon.contains("Magento") || beforeColon.contains("Extensions") || 
-			    beforeColon.contains("Integration") || beforeColon.contains("Connectors") ||
-			    beforeColon.contains("Product Feed") || beforeColon.contains("General")) {
-				cleanTitle = cleanTitle.substring(colonIndex + 1).trim();
-			}
-		}
-		
-		frontmatter.append("---\n");
-		frontmatter.append("title: \"").append(cleanTitle.replace("\"", "\\\"")).append("\"\n");
-		
-		// Make Main_Page the homepage with slug: / and show sidebar
-		if (article.fromTitle().equals("Main_Page") || article.fromTitle().equals("Main Page")) {
-			frontmatter.append("slug: /\n");
-			frontmatter.append("displayed_sidebar: mainSidebar\n");
-		}
-		
-		if (article.fromCategory() != null && article.fromCategory().text() != null && !article.fromCategory().text().isEmpty()) {
-			frontmatter.append("sidebar_label: \"").append(cleanTitle.replace("\"", "\\\"")).append("\"\n");
-		}
-		
-		frontmatter.append("---\n\n");
-		
-		final String markdown = frontmatter.toString() + "# " + cleanTitle + "\n\n" + parserOutputMarkdownWithFixedUnderline;
-		final String markdownWithYoutube = YoutubeRewriter.rewriteYoutubeLinks(markdown);
-		final String markdownWithFixedAssetLinks = MarkdownUtils.fixRemainingAssetLinks(markdownWithYoutube);
-		
-		// Restore code blocks from markers BEFORE MDX escaping
-		final String markdownWithCodeBlocks = restoreCodeBlocks(markdownWithFixedAssetLinks);
-		
-		// Restore tables from markers
-		final String markdownWithTables = restoreTables(markdownWithCodeBlocks);
-
-		return MarkdownUtils.cleanMarkdown(markdownWithTables);
-	}
+	private static final ArticleConverter converter = new ArticleConverter();
 
 	public static String determineDirectoryPath(final ArticleRecord article) {
 		// Main_Page goes directly to root as index.md (will become /)
@@ -219,62 +28,48 @@ public class ArticleWriter {
 		return Config.BASE_PATH + ArticleUtils.determineArticleWithCategoryPath(article);
 	}
 
-	/**
-	 * Remove HTML tags from markdown, but preserve content inside fenced code blocks.
-	 */
-	private static String removeHtmlTagsPreservingCodeBlocks(final String markdown) {
-		final StringBuilder result = new StringBuilder();
-		boolean inCodeBlock = false;
-		
-		for (final String line : markdown.split("\n", -1)) {
-			if (line.startsWith("```")) {
-				inCodeBlock = !inCodeBlock;
-				result.append(line).append("\n");
-			} else if (inCodeBlock) {
-				// Inside code block - don't modify
-				result.append(line).append("\n");
-			} else {
-				// Outside code block - remove HTML tags
-				result.append(line.replaceAll("<([^>]+)>", "$1")).append("\n");
-			}
-		}
-		
-		// Remove trailing newline if original didn't have one
-		if (!markdown.endsWith("\n") && result.length() > 0) {
-			result.setLength(result.length() - 1);
-		}
-		
-		return result.toString();
-	}
-
 	public static Path determineFilePath(final ArticleRecord article) {
 		final String directoryPath = determineDirectoryPath(article);
 		return Paths.get(directoryPath, "index.md");
 	}
 
-	public static void writeArticle(final ArticleRecord article) throws IOException, InterruptedException {
-		final String markdown = createMarkdown(article);
-		final Collection<AssetRecord> assets = article.assets();
+	/**
+	 * Converts and writes the article and downloads its assets. Returns the
+	 * converted article.
+	 */
+	public static ConvertedArticleRecord writeArticle(final ArticleRecord article)
+			throws IOException, InterruptedException {
+		final ConvertedArticleRecord converted = converter.convert(article);
+		final String markdown = converted.markdown();
+		final Collection<AssetRecord> assets = converted.assets();
 
 		final String directoryPath = determineDirectoryPath(article);
 		new File(directoryPath).mkdirs();
 
 		final byte[] markdownBytes = markdown.getBytes();
 
+		// Start all asset downloads at once, the HTTP client limits the requests in flight
+		final Map<Path, CompletableFuture<byte[]>> assetDownloads = new LinkedHashMap<>();
+
 		for (final AssetRecord asset : assets) {
 			final String assetAbsUrl = asset.absUrl();
 			final String assetFileName = asset.fileName();
 			final Path assetFilePath = Path.of(directoryPath, assetFileName);
 
 			if (!assetFilePath.toFile().exists()) {
-				final byte[] assetBytes = MediaWikiClient.getAsset(assetAbsUrl);
+				assetDownloads.put(assetFilePath, MediaWikiClient.getAssetAsync(assetAbsUrl));
+			}
+		}
 
-				if (assetBytes == null) {
-				} else {
-					System.out.println("Writing asset " + assetFilePath);
+		for (final Map.Entry<Path, CompletableFuture<byte[]>> assetDownload : assetDownloads.entrySet()) {
+			final Path assetFilePath = assetDownload.getKey();
+			final byte[] assetBytes = ConcurrencyUtils.await(assetDownload.getValue());
 
-					Files.write(assetFilePath, assetBytes);
-				}
+			if (assetBytes == null) {
+			} else {
+				System.out.println("Writing asset " + assetFilePath);
+
+				Files.write(assetFilePath, assetBytes);
 			}
 		}
 
@@ -283,5 +78,7 @@ public class ArticleWriter {
 		System.out.println("Writing article " + path);
 
 		Files.write(path, markdownBytes);
+
+		return converted;
 	}
 }
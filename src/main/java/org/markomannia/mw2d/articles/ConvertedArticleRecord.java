@@ -0,0 +1,11 @@
+package org.markomannia.mw2d.articles;
+
+import java.util.Collection;
+
+import org.markomannia.mw2d.assets.AssetRecord;
+
+/**
+ * The markdown of an article, and the assets it refers to.
+ */
+public record ConvertedArticleRecord(String markdown, Collection<AssetRecord> assets) {
+}
@@ -0,0 +1,16 @@
+package org.markomannia.mw2d.articles;
+
+/**
+ * A redirect page of the wiki, which points to an article, or to a section of
+ * it if fragment is set.
+ */
+public record RedirectRecord(ArticleRecord article, String fragment) {
+
+	/**
+	 * Returns the title of the article, followed by # and the fragment if there
+	 * is one.
+	 */
+	public String toTitle() {
+		return fragment == null ? article.fromTitle() : article.fromTitle() + "#" + fragment;
+	}
+}
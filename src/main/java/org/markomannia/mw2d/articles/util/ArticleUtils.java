@@ -2,17 +2,29 @@ package org.markomannia.mw2d.articles.util;
 
 import org.markomannia.mw2d.articles.ArticleRecord;
 import org.markomannia.mw2d.categories.util.CategoryUtils;
-import org.markomannia.mw2d.util.UrlUtils;
+import org.markomannia.mw2d.util.SlugEngine;
 
 public class ArticleUtils {
 
-	public static String cleanArticleFileName(final String fileName) {
-		return UrlUtils.cleanFileName(fileName);
+	/**
+	 * Returns the cached path of the title, titles that end up on the same path
+	 * are reported.
+	 */
+	public static String cleanArticleFileName(final String title) {
+		return SlugEngine.ARTICLES.slug(title);
 	}
 
 	public static String determineArticleWithCategoryPath(final ArticleRecord article) {
+		return determineArticlePath(article.fromTitle());
+	}
+
+	/**
+	 * The path depends on the title only, so it is known before the page is
+	 * fetched.
+	 */
+	public static String determineArticlePath(final String title) {
 		// Use only the article title for the path - don't add category prefix
 		// This preserves the original MediaWiki URL structure
-		return "/" + cleanArticleFileName(article.fromTitle());
+		return "/" + cleanArticleFileName(title);
 	}
 }
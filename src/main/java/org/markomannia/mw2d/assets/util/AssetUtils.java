@@ -1,139 +1,69 @@
 package org.markomannia.mw2d.assets.util;
 
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.List;
 
-import org.jsoup.select.Elements;
+import org.jsoup.nodes.Element;
 import org.markomannia.mw2d.assets.AssetRecord;
+import org.markomannia.mw2d.document.DocumentProcessor;
+import org.markomannia.mw2d.document.DocumentProcessor.Result;
+import org.markomannia.mw2d.util.SlugEngine;
 import org.markomannia.mw2d.util.UrlUtils;
 
 public class AssetUtils {
 
+	/**
+	 * For assets, we don't want subpaths - all separators become underscores.
+	 * File names that different assets end up with are reported.
+	 */
 	public static String cleanAssetFileName(final String fileName) {
-		// For assets, we don't want subpaths - replace : with _ instead of /
-		// Extract file extension
-		String extension = "";
-		String nameWithoutExtension = fileName;
-		final int lastDotIndex = fileName.lastIndexOf('.');
-		// Only treat as extension if there's content after the dot and it looks like a file extension
-		if (lastDotIndex > 0 && lastDotIndex < fileName.length() - 1) {
-			final String possibleExtension = fileName.substring(lastDotIndex);
-			// Only common file extensions (2-4 chars after dot, no special chars)
-			if (possibleExtension.matches("\\.[a-zA-Z0-9]{2,5}")) {
-				extension = possibleExtension;
-				nameWithoutExtension = fileName.substring(0, lastDotIndex);
-			}
-		}
-		
-		// Remove problematic special characters - for assets, ALL special chars become _ (no subpaths)
-		String cleaned = nameWithoutExtension
-				.replace("'", "").replace("´", "").replace("´", "").replace(",", "")
-				.replace("!", "").replace("?", "").replace("Â", "")
-				.replace(":", "_")   // Doppelpunkt -> Unterstrich (keine Subpfade für Assets)
-				.replace("/", "_")   // Schrägstrich -> Unterstrich
-				.replace("&", "_")
-				.replace(".", "_")
-				.replace("\"", "")
-				.replace("<", "")
-				.replace(">", "")
-				.replace("|", "_")
-				.replace("*", "")
-				.replace("\\", "_")
-				.replace("(", "_").replace(")", "_").replace(" ", "_");
-		
-		// German chars
-		cleaned = cleaned.replace("ü", "ue").replace("ä", "ae").replace("ö", "oe")
-				.replace("Ü", "Ue").replace("Ä", "Ae").replace("Ö", "Oe").replace("ß", "ss");
-		
-		// Normalize multiple underscores
-		while (cleaned.contains("__")) {
-			cleaned = cleaned.replace("__", "_");
-		}
-		
-		// Remove leading/trailing underscores
-		while (cleaned.startsWith("_")) {
-			cleaned = cleaned.substring(1);
-		}
-		while (cleaned.endsWith("_")) {
-			cleaned = cleaned.substring(0, cleaned.length() - 1);
+		return SlugEngine.ASSETS.slug(fileName);
+	}
+
+	/**
+	 * Extensions of the files that links are downloaded as assets for.
+	 */
+	private static final List<String> FILE_EXTENSIONS = List.of(".mid", ".png", ".jpg", ".jpeg", ".gif", ".svg",
+			".webp", ".pdf", ".zip", ".gz", ".tar");
+
+	public static boolean isFileLink(final Element a) {
+		final String href = a.attr("href").toLowerCase();
+
+		return FILE_EXTENSIONS.stream().anyMatch(href::contains);
+	}
+
+	/**
+	 * Registers the image as asset of the pass, and points it to the file name of
+	 * the asset.
+	 */
+	public static Result rewriteImage(final Element img, final DocumentProcessor.Pass pass) {
+		final String src = img.attr("src");
+
+		if (!src.isBlank()) {
+			final AssetRecord asset = pass.assets().computeIfAbsent(src,
+					assetRelUrl -> new AssetRecord(assetRelUrl, img.absUrl("src"), rewriteAssetUrlToFileName(assetRelUrl)));
+
+			img.attr("src", asset.fileName());
 		}
-		
-		return cleaned + extension;
+
+		return Result.CONTINUE;
 	}
 
-	public static Map<String, AssetRecord> rewriteAssets(final Elements parserOutput) {
-		/*
-		 * assets
-		 */
-		final Map<String, AssetRecord> result = new HashMap<>();
-
-		/*
-		 * imgs
-		 */
-		final Elements assets = parserOutput.select("img");
-		Objects.requireNonNull(assets);
-
-		assets.forEach(a -> {
-			final String assetRelUrl = a.attr("src");
-			final String assetAbsUrl = a.absUrl("src");
-
-			final String assetFileName = rewriteAssetUrlToFileName(assetRelUrl);
-			final AssetRecord asset = new AssetRecord(assetRelUrl, assetAbsUrl, assetFileName);
-
-			result.put(assetRelUrl, asset);
-		});
-
-		/*
-		 * files
-		 */
-		final Elements files = parserOutput
-				.select("a[href*=\".mid\"],a[href*=\".png\"],a[href*=\".jpg\"],a[href*=\".jpeg\"],a[href*=\".gif\"],a[href*=\".svg\"],a[href*=\".webp\"],a[href*=\".pdf\"],a[href*=\".zip\"],a[href*=\".gz\"],a[href*=\".tar\"]");
-
-		files.forEach(f -> {
-			final String assetRelUrl = f.attr("href");
-			final String assetAbsUrl = f.absUrl("href");
-
-			if (!assetRelUrl.contains("Datei:") && !assetRelUrl.isBlank()) {
-				final String assetFileName = rewriteAssetUrlToFileName(assetRelUrl);
-				final AssetRecord asset = new AssetRecord(assetRelUrl, assetAbsUrl, assetFileName);
-
-				result.put(assetRelUrl, asset);
-			}
-		});
-
-		/*
-		 * clean HTML for conversion to markdown
-		 */
-
-		// fix img URLs
-		parserOutput.select("img").forEach(img -> {
-			final String src = img.attr("src");
-			if (src != null && !src.isBlank()) {
-				final AssetRecord asset = result.get(src);
-				if (asset != null) {
-					img.attr("src", asset.fileName());
-				} else {
-					System.out.println("Warning: Could not find asset for image: " + src);
-				}
-			}
-		});
-
-		// fix media file URLs
-		parserOutput.select("a[href*=\".mid\"],a[href*=\".png\"],a[href*=\".jpg\"],a[href*=\".jpeg\"],a[href*=\".gif\"],a[href*=\".svg\"],a[href*=\".webp\"],a[href*=\".pdf\"],a[href*=\".zip\"],a[href*=\".gz\"],a[href*=\".tar\"]").forEach(link -> {
-			final String href = link.attr("href");
-			if (href != null && !href.isBlank()) {
-				final AssetRecord asset = result.get(href);
-				if (asset != null) {
-					link.attr("href", asset.fileName());
-				} else {
-					System.out.println("Warning: Could not find asset for file: " + href);
-				}
-			}
-		});
-
-		return result;
+	/**
+	 * Registers the linked media file as asset of the pass, and points the link to
+	 * the file name of the asset. Links to file description pages are kept.
+	 */
+	public static Result rewriteFileLink(final Element a, final DocumentProcessor.Pass pass) {
+		final String href = a.attr("href");
+
+		if (!href.contains("Datei:") && !href.isBlank()) {
+			final AssetRecord asset = pass.assets().computeIfAbsent(href,
+					assetRelUrl -> new AssetRecord(assetRelUrl, a.absUrl("href"), rewriteAssetUrlToFileName(assetRelUrl)));
+
+			a.attr("href", asset.fileName());
+		}
+
+		return Result.CONTINUE;
 	}
 
 	public static String rewriteAssetUrlToFileName(final String url) {
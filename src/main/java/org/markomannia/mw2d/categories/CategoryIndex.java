@@ -0,0 +1,188 @@
+package org.markomannia.mw2d.categories;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.client.MediaWikiCategoryRecord;
+
+/**
+ * Index of the sorted categories of the wiki. The primary category of a page
+ * is the first of its categories in the sort order, it is looked up by hash
+ * instead of scanning all categories. Pages without a known category are
+ * assigned one by the beginning of their title, looked up in a prefix trie of
+ * the category rules.
+ *
+ * The index is not modified after construction and can be shared between
+ * threads.
+ */
+public class CategoryIndex {
+
+	private static final String BUNDLED_RULES = "/category-rules.tsv";
+
+	private static class TrieNode {
+
+		private final Map<Character, TrieNode> children = new HashMap<>();
+
+		/**
+		 * Category of the rule whose prefix ends in the node, or null.
+		 */
+		private String category;
+	}
+
+	private final List<MediaWikiCategoryRecord> categories;
+
+	private final Map<String, Integer> ranksByText = new HashMap<>();
+
+	private final Map<String, MediaWikiCategoryRecord> categoriesByLowerCaseText = new HashMap<>();
+
+	private final TrieNode rules = new TrieNode();
+
+	/**
+	 * Creates the index with the rules at Config.CATEGORY_RULES_PATH, or the
+	 * bundled rules if there is no such file.
+	 */
+	public CategoryIndex(final List<MediaWikiCategoryRecord> categoriesSorted) {
+		this(categoriesSorted, defaultRules());
+	}
+
+	public CategoryIndex(final List<MediaWikiCategoryRecord> categoriesSorted, final List<CategoryRuleRecord> rules) {
+		this.categories = List.copyOf(categoriesSorted);
+
+		for (int i = 0; i < categories.size(); i++) {
+			final MediaWikiCategoryRecord category = categories.get(i);
+
+			if (category.text() != null) {
+				ranksByText.putIfAbsent(category.text(), i);
+				categoriesByLowerCaseText.putIfAbsent(category.text().toLowerCase(Locale.ROOT), category);
+			}
+		}
+
+		for (final CategoryRuleRecord rule : rules) {
+			TrieNode node = this.rules;
+
+			for (int i = 0; i < rule.prefix().length(); i++) {
+				node = node.children.computeIfAbsent(normalize(rule.prefix().charAt(i)), c -> new TrieNode());
+			}
+
+			if (node.category == null) {
+				node.category = rule.category();
+			}
+		}
+	}
+
+	private static List<CategoryRuleRecord> defaultRules() {
+		try {
+			final Path path = Path.of(Config.CATEGORY_RULES_PATH);
+
+			if (Files.exists(path)) {
+				System.out.println("Using category rules of " + path);
+
+				try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+					return readRules(reader);
+				}
+			}
+
+			try (InputStream in = CategoryIndex.class.getResourceAsStream(BUNDLED_RULES)) {
+				return readRules(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads rules from a tab separated file with the columns prefix and category.
+	 * Empty lines and lines starting with # are skipped.
+	 */
+	public static List<CategoryRuleRecord> readRules(final BufferedReader reader) throws IOException {
+		final List<CategoryRuleRecord> result = new ArrayList<>();
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+			if (line.isBlank() || line.startsWith("#")) {
+				continue;
+			}
+
+			final String[] columns = line.split("\t", -1);
+
+			if (columns.length == 2 && !columns[0].isEmpty() && !columns[1].isEmpty()) {
+				result.add(new CategoryRuleRecord(columns[0], columns[1]));
+			} else {
+				System.out.println("Warning: Skipping malformed category rule: " + line);
+			}
+		}
+
+		return result;
+	}
+
+	private static char normalize(final char c) {
+		return c == '_' ? ' ' : c;
+	}
+
+	public List<MediaWikiCategoryRecord> categories() {
+		return categories;
+	}
+
+	/**
+	 * Returns the first of the page categories in the sort order, or null if none
+	 * of them is known.
+	 */
+	public MediaWikiCategoryRecord primary(final Collection<String> pageCategories) {
+		Integer result = null;
+
+		for (final String pageCategory : pageCategories) {
+			final Integer rank = ranksByText.get(pageCategory);
+
+			if (rank != null && (result == null || rank < result)) {
+				result = rank;
+			}
+		}
+
+		return result == null ? null : categories.get(result);
+	}
+
+	/**
+	 * Returns the category with the given text ignoring case, or null.
+	 */
+	public MediaWikiCategoryRecord findIgnoreCase(final String text) {
+		return text == null ? null : categoriesByLowerCaseText.get(text.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Returns the category of the rule with the longest prefix that the title
+	 * starts with, followed by a slash or colon, or null if no rule applies.
+	 */
+	public String inferFromTitle(final String title) {
+		if (title == null) {
+			return null;
+		}
+
+		String result = null;
+		TrieNode node = rules;
+
+		for (int i = 0; i < title.length() && node != null; i++) {
+			final char c = normalize(title.charAt(i));
+
+			if ((c == '/' || c == ':') && node.category != null) {
+				result = node.category;
+			}
+
+			node = node.children.get(c);
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,8 @@
+package org.markomannia.mw2d.categories;
+
+/**
+ * Assigns the category to pages without a known category whose title starts
+ * with the prefix followed by a slash or colon.
+ */
+public record CategoryRuleRecord(String prefix, String category) {
+}
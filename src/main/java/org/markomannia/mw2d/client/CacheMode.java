@@ -0,0 +1,20 @@
+package org.markomannia.mw2d.client;
+
+public enum CacheMode {
+
+	/**
+	 * Every response is downloaded, nothing is cached.
+	 */
+	OFF,
+
+	/**
+	 * Responses are cached on disk and revalidated with If-None-Match and
+	 * If-Modified-Since, unchanged pages cost only a 304 response.
+	 */
+	REVALIDATE,
+
+	/**
+	 * Responses are served from the cache only, the wiki is not contacted.
+	 */
+	OFFLINE
+}
@@ -0,0 +1,10 @@
+package org.markomannia.mw2d.client;
+
+import java.nio.file.Path;
+
+/**
+ * Entry of the response cache, path is the file holding the validators and the
+ * body.
+ */
+public record CachedResponseRecord(String url, String etag, String lastModified, String contentType, Path path) {
+}
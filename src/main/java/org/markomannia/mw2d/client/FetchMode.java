@@ -0,0 +1,15 @@
+package org.markomannia.mw2d.client;
+
+public enum FetchMode {
+
+	/**
+	 * The skinned HTML page is downloaded, and the article is extracted from it.
+	 */
+	PAGE,
+
+	/**
+	 * Only the rendered article body, its categories and its display title are
+	 * requested through action=parse of the Action API.
+	 */
+	PARSE
+}
@@ -0,0 +1,10 @@
+package org.markomannia.mw2d.client;
+
+import java.util.List;
+
+/**
+ * One chunk of a listing of the wiki, and the cursor of the next chunk, which
+ * is null for the last chunk.
+ */
+public record ListingChunkRecord<K, T>(List<T> items, K next) {
+}
@@ -0,0 +1,482 @@
+package org.markomannia.mw2d.client;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.categories.util.CategoryUtils;
+import org.markomannia.mw2d.client.util.ChunkIterator;
+import org.markomannia.mw2d.util.UrlUtils;
+
+/**
+ * Client for the MediaWiki Action API. Responses are requested as XML and
+ * parsed with the XML parser of Jsoup.
+ */
+public class MediaWikiApiClient {
+
+	/**
+	 * Maximum number of titles per query, the limit of the API for clients
+	 * without apihighlimits.
+	 */
+	public static final int TITLES_PER_REQUEST = 50;
+
+	public static String apiUrl(final Map<String, String> params) {
+		final StringBuilder result = new StringBuilder(Config.MEDIAWIKI_API_URL).append("?format=xml");
+
+		params.forEach((key, value) -> {
+			result.append('&').append(key).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+		});
+
+		return result.toString();
+	}
+
+	/**
+	 * Sends a query to the API and fails with a MediaWikiApiException if the API
+	 * answers with an error.
+	 */
+	public static CompletableFuture<Document> queryAsync(final Map<String, String> params) {
+		final String url = apiUrl(params);
+
+		System.out.println("Fetching " + url);
+
+		return MediaWikiClient.getXmlDocumentAsync(url).thenApply(document -> {
+			final Element error = document.selectFirst("api > error");
+
+			if (error != null) {
+				throw new MediaWikiApiException(error.attr("code"), error.attr("info"));
+			}
+
+			return document;
+		});
+	}
+
+	/**
+	 * Returns the parameters to continue a query, or null if the query is
+	 * complete.
+	 */
+	private static Map<String, String> continueParams(final Document document) {
+		final Element continueElement = document.selectFirst("api > continue");
+
+		if (continueElement == null) {
+			return null;
+		}
+
+		final Map<String, String> result = new LinkedHashMap<>();
+
+		for (final Attribute attribute : continueElement.attributes()) {
+			result.put(attribute.getKey(), attribute.getValue());
+		}
+
+		return result;
+	}
+
+	public static String pageUrl(final String title) {
+		return URI.create(Config.MEDIAWIKI_URL).resolve("/wiki/" + UrlUtils.encodeTitle(title)).toString();
+	}
+
+	/**
+	 * Fetches the rendered body of a page together with its categories and its
+	 * display title in one request. Redirects are not followed, a redirect page is
+	 * returned with its redirect message.
+	 */
+	public static CompletableFuture<MediaWikiParsedPageRecord> parseAsync(final String title) {
+		final Map<String, String> params = new LinkedHashMap<>();
+		params.put("action", "parse");
+		params.put("page", title);
+		params.put("prop", "text|categories|displaytitle");
+		params.put("disableeditsection", "1");
+
+		return queryAsync(params).thenApply(document -> {
+			final Element parse = document.selectFirst("api > parse");
+
+			if (parse == null) {
+				throw new MediaWikiApiException("noparse", "No parse result for " + title);
+			}
+
+			final String parsedTitle = parse.attr("title");
+			final String displayTitle = parse.hasAttr("displaytitle")
+					? Jsoup.parseBodyFragment(parse.attr("displaytitle")).text()
+					: parsedTitle;
+
+			final List<String> categories = parse.select("> categories > cl").stream()
+					.filter(cl -> !cl.hasAttr("hidden")).map(cl -> cl.wholeText().replace('_', ' ')).toList();
+
+			final Element text = parse.selectFirst("> text");
+			final String html = text == null ? "" : text.wholeText();
+
+			return new MediaWikiParsedPageRecord(parsedTitle, displayTitle, categories,
+					Jsoup.parseBodyFragment(html, pageUrl(parsedTitle)));
+		});
+	}
+
+	/**
+	 * Looks up the visible categories of up to 50 pages in one query. The
+	 * categories are keyed by the titles as given, and named without the namespace
+	 * prefix.
+	 */
+	public static CompletableFuture<Map<String, List<String>>> getPageCategoriesAsync(final List<String> titles) {
+		final Map<String, String> params = new LinkedHashMap<>();
+		params.put("action", "query");
+		params.put("titles", String.join("|", titles));
+		params.put("prop", "categories");
+		params.put("clshow", "!hidden");
+		params.put("cllimit", "max");
+
+		return getPageCategoriesAsync(params, new HashMap<>()).thenApply(categoriesByTitles -> {
+			final Map<String, List<String>> result = new LinkedHashMap<>();
+
+			for (final String title : titles) {
+				result.put(title, categoriesByTitles.getOrDefault(title, List.of()));
+			}
+
+			return result;
+		});
+	}
+
+	private static CompletableFuture<Map<String, List<String>>> getPageCategoriesAsync(
+			final Map<String, String> params, final Map<String, List<String>> result) {
+		return queryAsync(params).thenCompose(document -> {
+			final Map<String, String> normalized = new HashMap<>();
+
+			document.select("api > query > normalized > n").forEach(n -> normalized.put(n.attr("to"), n.attr("from")));
+
+			document.select("api > query > pages > page").forEach(page -> {
+				final String title = page.attr("title");
+				final List<String> categories = result.computeIfAbsent(normalized.getOrDefault(title, title),
+						t -> new ArrayList<>());
+
+				page.select("> categories > cl").forEach(cl -> {
+					final String categoryTitle = cl.attr("title");
+
+					categories.add(categoryTitle.substring(categoryTitle.indexOf(':') + 1));
+				});
+			});
+
+			final Map<String, String> continueParams = continueParams(document);
+
+			if (continueParams == null) {
+				return CompletableFuture.completedFuture(result);
+			}
+
+			final Map<String, String> nextParams = new LinkedHashMap<>(params);
+			nextParams.putAll(continueParams);
+
+			return getPageCategoriesAsync(nextParams, result);
+		});
+	}
+
+	/**
+	 * Resolves the targets of the given redirect titles, 50 titles per request.
+	 * Chains of redirects are collapsed to their final target. Titles that do not
+	 * redirect, and redirects ending in a loop, are missing in the result.
+	 */
+	public static CompletableFuture<Map<String, String>> resolveRedirectsAsync(final List<String> titles) {
+		final List<CompletableFuture<Document>> batches = new ArrayList<>();
+
+		for (int i = 0; i < titles.size(); i += TITLES_PER_REQUEST) {
+			final Map<String, String> params = new LinkedHashMap<>();
+			params.put("action", "query");
+			params.put("titles", String.join("|", titles.subList(i, Math.min(i + TITLES_PER_REQUEST, titles.size()))));
+			params.put("redirects", "1");
+
+			batches.add(queryAsync(params));
+		}
+
+		return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).thenApply(v -> {
+			final Map<String, String> normalized = new HashMap<>();
+			final Map<String, String> redirects = new HashMap<>();
+
+			for (final CompletableFuture<Document> batch : batches) {
+				final Document document = batch.join();
+
+				document.select("api > query > normalized > n").forEach(n -> normalized.put(n.attr("from"), n.attr("to")));
+				document.select("api > query > redirects > r").forEach(r -> redirects.put(r.attr("from"),
+						r.attr("tofragment").isEmpty() ? r.attr("to") : r.attr("to") + "#" + r.attr("tofragment")));
+			}
+
+			final Map<String, String> result = new LinkedHashMap<>();
+
+			for (final String title : titles) {
+				final String target = collapseRedirects(normalized.getOrDefault(title, title), redirects);
+
+				if (target != null) {
+					result.put(title, target);
+				}
+			}
+
+			return result;
+		});
+	}
+
+	/**
+	 * Follows the redirects from the title to the final target, followed by # and
+	 * the section if a redirect points to one, the last of them if several do.
+	 * Titles cannot contain #. Returns null if the title does not redirect or the
+	 * redirects loop.
+	 */
+	static String collapseRedirects(final String title, final Map<String, String> redirects) {
+		final Set<String> visited = new HashSet<>();
+		String result = title;
+		String fragment = null;
+
+		while (redirects.containsKey(result)) {
+			if (!visited.add(result)) {
+				System.out.println("Warning: Redirect loop at " + title);
+				return null;
+			}
+
+			final String target = redirects.get(result);
+			final int hash = target.indexOf('#');
+
+			if (hash < 0) {
+				result = target;
+			} else {
+				result = target.substring(0, hash);
+				fragment = target.substring(hash + 1);
+			}
+		}
+
+		if (result.equals(title)) {
+			return null;
+		}
+
+		return fragment == null ? result : result + "#" + fragment;
+	}
+
+	/**
+	 * Lazily enumerates the pages of the main namespace, chunk by chunk.
+	 */
+	public static Stream<MediaWikiPageRecord> streamPages() {
+		return streamPages(0);
+	}
+
+	/**
+	 * Lazily enumerates the pages of the namespace, chunk by chunk.
+	 */
+	public static Stream<MediaWikiPageRecord> streamPages(final int namespace) {
+		return ChunkIterator.stream(Map.<String, String>of(),
+				continueParams -> getPagesChunkAsync(namespace, continueParams));
+	}
+
+	private static CompletableFuture<ListingChunkRecord<Map<String, String>, MediaWikiPageRecord>> getPagesChunkAsync(
+			final int namespace, final Map<String, String> continueParams) {
+		final Map<String, String> params = new LinkedHashMap<>();
+		params.put("action", "query");
+		params.put("generator", "allpages");
+		params.put("gapnamespace", String.valueOf(namespace));
+		params.put("gaplimit", "max");
+		params.put("prop", "info");
+		params.putAll(continueParams);
+
+		return queryAsync(params).thenApply(document -> {
+			final List<MediaWikiPageRecord> result = new ArrayList<>();
+
+			document.select("api > query > pages > page").forEach(page -> result.add(pageRecord(page)));
+
+			// keep the order of Special:AllPages, the API returns the pages of a chunk by page ID
+			result.sort(Comparator.comparing(p -> p.title().replace(' ', '_')));
+
+			return new ListingChunkRecord<>(result, continueParams(document));
+		});
+	}
+
+	private static MediaWikiPageRecord pageRecord(final Element page) {
+		final String title = page.attr("title");
+
+		return new MediaWikiPageRecord(pageUrl(title), page.hasAttr("redirect"), title,
+				Integer.valueOf(page.attr("pageid")), Integer.valueOf(page.attr("ns")), page.attr("touched"),
+				page.hasAttr("lastrevid") ? Long.valueOf(page.attr("lastrevid")) : null);
+	}
+
+	/**
+	 * Looks up up to 50 pages in one query. Pages that do not exist are missing
+	 * in the result.
+	 */
+	public static CompletableFuture<List<MediaWikiPageRecord>> getPagesAsync(final List<String> titles) {
+		final Map<String, String> params = new LinkedHashMap<>();
+		params.put("action", "query");
+		params.put("titles", String.join("|", titles));
+		params.put("prop", "info");
+
+		return queryAsync(params).thenApply(document -> document.select("api > query > pages > page").stream()
+				.filter(page -> !page.hasAttr("missing") && !page.hasAttr("invalid")).map(MediaWikiApiClient::pageRecord)
+				.toList());
+	}
+
+	/**
+	 * Lazily enumerates the recent changes since the given ISO 8601 timestamp,
+	 * oldest first, chunk by chunk.
+	 */
+	public static Stream<MediaWikiChangeRecord> streamRecentChanges(final String since) {
+		return ChunkIterator.stream(Map.<String, String>of(),
+				continueParams -> getRecentChangesChunkAsync(since, continueParams));
+	}
+
+	private static CompletableFuture<ListingChunkRecord<Map<String, String>, MediaWikiChangeRecord>> getRecentChangesChunkAsync(
+			final String since, final Map<String, String> continueParams) {
+		final Map<String, String> params = new LinkedHashMap<>();
+		params.put("action", "query");
+		params.put("list", "recentchanges");
+		params.put("rcstart", since);
+		params.put("rcdir", "newer");
+		params.put("rcprop", "title|loginfo");
+		params.put("rclimit", "max");
+		params.putAll(continueParams);
+
+		return queryAsync(params).thenApply(document -> {
+			final List<MediaWikiChangeRecord> result = new ArrayList<>();
+
+			document.select("api > query > recentchanges > rc").forEach(rc -> {
+				final Element move = rc.selectFirst("> params[target_title]");
+
+				result.add(new MediaWikiChangeRecord(rc.attr("type"), Integer.valueOf(rc.attr("ns")), rc.attr("title"),
+						move == null ? null : Integer.valueOf(move.attr("target_ns")),
+						move == null ? null : move.attr("target_title")));
+			});
+
+			return new ListingChunkRecord<>(result, continueParams(document));
+		});
+	}
+
+	/**
+	 * Lazily enumerates the titles of the pages of the namespace that embed the
+	 * template, or use the file if the title is one of a file, chunk by chunk.
+	 */
+	public static Stream<String> streamEmbeddingPages(final String title, final boolean isFile,
+			final int namespace) {
+		return ChunkIterator.stream(Map.<String, String>of(),
+				continueParams -> getEmbeddingPagesChunkAsync(title, isFile, namespace, continueParams));
+	}
+
+	private static CompletableFuture<ListingChunkRecord<Map<String, String>, String>> getEmbeddingPagesChunkAsync(
+			final String title, final boolean isFile, final int namespace, final Map<String, String> continueParams) {
+		final String list = isFile ? "imageusage" : "embeddedin";
+		final String prefix = isFile ? "iu" : "ei";
+
+		final Map<String, String> params = new LinkedHashMap<>();
+		params.put("action", "query");
+		params.put("list", list);
+		params.put(prefix + "title", title);
+		params.put(prefix + "namespace", String.valueOf(namespace));
+		params.put(prefix + "limit", "max");
+		params.putAll(continueParams);
+
+		return queryAsync(params).thenApply(document -> {
+			final List<String> result = document.select("api > query > " + list + " > *").stream()
+					.map(page -> page.attr("title")).toList();
+
+			return new ListingChunkRecord<>(result, continueParams(document));
+		});
+	}
+
+	/**
+	 * Lazily enumerates the titles of the pages in the category, named without
+	 * the namespace prefix, chunk by chunk.
+	 */
+	public static Stream<String> streamCategoryMembers(final String category) {
+		return ChunkIterator.stream(Map.<String, String>of(),
+				continueParams -> getCategoryMembersChunkAsync(category, continueParams));
+	}
+
+	private static CompletableFuture<ListingChunkRecord<Map<String, String>, String>> getCategoryMembersChunkAsync(
+			final String category, final Map<String, String> continueParams) {
+		final Map<String, String> params = new LinkedHashMap<>();
+		params.put("action", "query");
+		params.put("list", "categorymembers");
+		params.put("cmtitle", "Category:" + category);
+		params.put("cmprop", "title");
+		params.put("cmlimit", "max");
+		params.putAll(continueParams);
+
+		return queryAsync(params).thenApply(document -> {
+			final List<String> result = document.select("api > query > categorymembers > cm").stream()
+					.map(cm -> cm.attr("title")).toList();
+
+			return new ListingChunkRecord<>(result, continueParams(document));
+		});
+	}
+
+	/**
+	 * Lazily enumerates the categories, chunk by chunk.
+	 */
+	public static Stream<MediaWikiCategoryRecord> streamCategories() {
+		return ChunkIterator.stream(Map.<String, String>of(), MediaWikiApiClient::getCategoriesChunkAsync);
+	}
+
+	private static CompletableFuture<ListingChunkRecord<Map<String, String>, MediaWikiCategoryRecord>> getCategoriesChunkAsync(
+			final Map<String, String> continueParams) {
+		final Map<String, String> params = new LinkedHashMap<>();
+		params.put("action", "query");
+		params.put("list", "allcategories");
+		params.put("aclimit", "max");
+		params.put("acmin", "1");
+		params.put("acprop", "size");
+		params.putAll(continueParams);
+
+		return queryAsync(params).thenApply(document -> {
+			final List<MediaWikiCategoryRecord> result = new ArrayList<>();
+
+			document.select("api > query > allcategories > c").forEach(c -> {
+				final String text = c.text();
+
+				if (List.of(CategoryUtils.CATEGORIES_EXCLUDED).contains(text)) {
+					System.out.println("Ignoring category " + text);
+				} else {
+					result.add(categoryRecord(text, c));
+				}
+			});
+
+			return new ListingChunkRecord<>(result, continueParams(document));
+		});
+	}
+
+	private static MediaWikiCategoryRecord categoryRecord(final String text, final Element info) {
+		return new MediaWikiCategoryRecord("Category:" + text, text,
+				info.hasAttr("pages") ? Integer.valueOf(info.attr("pages")) : null);
+	}
+
+	/**
+	 * Looks up up to 50 categories, named without the namespace prefix, in one
+	 * query. Like the enumeration of the categories, the result only contains
+	 * categories with members, keyed by their names.
+	 */
+	public static CompletableFuture<Map<String, MediaWikiCategoryRecord>> getCategoriesAsync(
+			final List<String> categories) {
+		final Map<String, String> params = new LinkedHashMap<>();
+		params.put("action", "query");
+		params.put("titles", String.join("|", categories.stream().map(category -> "Category:" + category).toList()));
+		params.put("prop", "categoryinfo");
+
+		return queryAsync(params).thenApply(document -> {
+			final Map<String, MediaWikiCategoryRecord> result = new LinkedHashMap<>();
+
+			document.select("api > query > pages > page").forEach(page -> {
+				final String title = page.attr("title");
+				final String text = title.substring(title.indexOf(':') + 1);
+				final Element info = page.selectFirst("> categoryinfo");
+
+				if (info != null && Integer.parseInt(info.attr("size")) > 0
+						&& !List.of(CategoryUtils.CATEGORIES_EXCLUDED).contains(text)) {
+					result.put(text, categoryRecord(text, info));
+				}
+			});
+
+			return result;
+		});
+	}
+}
@@ -0,0 +1,20 @@
+package org.markomannia.mw2d.client;
+
+/**
+ * Thrown when the MediaWiki Action API answers with an error element.
+ */
+public class MediaWikiApiException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String code;
+
+	public MediaWikiApiException(final String code, final String info) {
+		super("MediaWiki API error " + code + ": " + info);
+		this.code = code;
+	}
+
+	public String getCode() {
+		return code;
+	}
+}
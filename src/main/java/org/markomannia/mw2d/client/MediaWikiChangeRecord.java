@@ -0,0 +1,10 @@
+package org.markomannia.mw2d.client;
+
+/**
+ * An entry of the recent changes of the wiki. type is edit, new, log or
+ * categorize, for which the title is the category whose members changed. Moves
+ * also carry the namespace and the title of the target, the other changes null.
+ */
+public record MediaWikiChangeRecord(String type, Integer namespace, String title, Integer targetNamespace,
+		String targetTitle) {
+}
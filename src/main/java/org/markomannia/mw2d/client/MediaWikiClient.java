@@ -1,23 +1,42 @@
 package org.markomannia.mw2d.client;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
-import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
 import org.markomannia.mw2d.Config;
 import org.markomannia.mw2d.categories.util.CategoryUtils;
+import org.markomannia.mw2d.client.util.ChunkIterator;
 import org.markomannia.mw2d.client.util.HttpClientUtils;
+import org.markomannia.mw2d.client.util.ResponseCacheUtils;
+import org.markomannia.mw2d.document.util.ContentRegionUtils;
 import org.markomannia.mw2d.document.util.DocumentUtils;
+import org.markomannia.mw2d.util.ConcurrencyUtils;
 
 public class MediaWikiClient {
 
@@ -25,64 +44,110 @@ public class MediaWikiClient {
 
 	private static final String ALL_PAGES_START_URL = Config.MEDIAWIKI_URL + "/wiki/Special:AllPages";
 
+	private static final ExecutorService bodyExecutor = Executors.newCachedThreadPool(runnable -> {
+		final Thread thread = new Thread(runnable, "mw2d-body");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static HttpRequest.Builder newRequest(final String url) {
+		return HttpRequest.newBuilder().uri(URI.create(url)).timeout(Config.HTTP_REQUEST_TIMEOUT)
+				.header("Authorization", "Basic " + Config.OPTIONAL_AUTH);
+	}
+
+	/**
+	 * Requests to MediaWiki itself carry the maxlag parameter, so that MediaWiki
+	 * rejects them while its database replication lags behind instead of slowing
+	 * down further.
+	 */
+	private static HttpRequest.Builder newWikiRequest(final String url) {
+		if (Config.MEDIAWIKI_MAXLAG <= 0) {
+			return newRequest(url);
+		}
+
+		return newRequest(url + (url.contains("?") ? "&" : "?") + "maxlag=" + Config.MEDIAWIKI_MAXLAG);
+	}
+
 	public static byte[] getAsset(final String url) throws IOException, InterruptedException {
+		return ConcurrencyUtils.await(getAssetAsync(url));
+	}
+
+	public static CompletableFuture<byte[]> getAssetAsync(final String url) {
 		// Skip FTP URLs - we can't download them via HTTP client
 		if (url == null || url.toLowerCase().startsWith("ftp://") || url.toLowerCase().startsWith("ftps://")) {
 			System.out.println("Warning: Skipping FTP URL: " + url);
-			return null;
+			return CompletableFuture.completedFuture(null);
 		}
-		
+
 		// Skip non-HTTP(S) URLs
 		if (!url.toLowerCase().startsWith("http://") && !url.toLowerCase().startsWith("https://")) {
 			System.out.println("Warning: Skipping unsupported URL scheme: " + url);
-			return null;
+			return CompletableFuture.completedFuture(null);
 		}
-		
-		final HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create(url))
-				.timeout(Duration.ofMillis(10 * 1000)).header("Authorization", "Basic " + Config.OPTIONAL_AUTH).build();
 
-		try {
-			final HttpResponse<byte[]> response = HttpClientUtils.sendOrRetry(httpRequest, BodyHandlers.ofByteArray());
+		// assets go through the cache as well, so that offline runs find them
+		return openAsync(url, newRequest(url)).thenApplyAsync(body -> {
+			try (InputStream in = body.body()) {
+				return in.readAllBytes();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, bodyExecutor).handle((bytes, e) -> {
+			if (e == null) {
+				return bytes;
+			}
+
+			final Throwable cause = ConcurrencyUtils.unwrap(e);
 
-			if (response.statusCode() < 200 || response.statusCode() >= 300) {
+			// offline, an asset that is not cached fails the page instead of being left out
+			if (!ResponseCacheUtils.isOffline() && (cause instanceof IOException
+					|| cause instanceof UncheckedIOException || cause instanceof MediaWikiHttpException)) {
 				return null;
-			} else {
-				return response.body();
 			}
-		} catch (final IOException e) {
-			return null;
-		}
+
+			throw new CompletionException(cause instanceof UncheckedIOException unchecked ? unchecked.getCause() : cause);
+		});
 	}
 
 	public static List<MediaWikiCategoryRecord> getCategories() throws IOException, InterruptedException {
-		return getCategories(ALL_CATEGORIES_URL);
+		return ConcurrencyUtils.await(getCategoriesAsync());
 	}
 
-	private static List<MediaWikiCategoryRecord> getCategories(final String url)
-			throws IOException, InterruptedException {
-		System.out.println("Fetching " + url);
+	/**
+	 * Collects the categories in the background.
+	 */
+	public static CompletableFuture<List<MediaWikiCategoryRecord>> getCategoriesAsync() {
+		return CompletableFuture.supplyAsync(() -> streamCategories().toList(), bodyExecutor);
+	}
 
-		final HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create(url))
-				.timeout(Duration.ofMillis(10 * 1000)).header("Authorization", "Basic " + Config.OPTIONAL_AUTH).build();
+	/**
+	 * Lazily enumerates the categories through the Action API, or by scraping
+	 * Special:Categories if the API is disabled or not available.
+	 */
+	public static Stream<MediaWikiCategoryRecord> streamCategories() {
+		if (!Config.USE_API) {
+			return ChunkIterator.stream(ALL_CATEGORIES_URL, MediaWikiClient::scrapeCategoriesChunkAsync);
+		}
 
-		final HttpResponse<String> response = HttpClientUtils.sendOrRetry(httpRequest, BodyHandlers.ofString());
+		return orElse(MediaWikiApiClient.streamCategories(), () -> ChunkIterator.stream(ALL_CATEGORIES_URL,
+				MediaWikiClient::scrapeCategoriesChunkAsync), "categories", ALL_CATEGORIES_URL);
+	}
 
-		final List<MediaWikiCategoryRecord> result = new ArrayList<>();
+	private static CompletableFuture<ListingChunkRecord<String, MediaWikiCategoryRecord>> scrapeCategoriesChunkAsync(
+			final String url) {
+		System.out.println("Fetching " + url);
 
-		if (response.statusCode() < 200 || response.statusCode() >= 300) {
-			throw new RuntimeException();
-		} else {
-			final String body = response.body();
-			final Document document = Jsoup.parse(body, Config.MEDIAWIKI_URL);
+		return getDocumentAsync(url, Config.MEDIAWIKI_URL).thenApply(document -> {
+			final List<MediaWikiCategoryRecord> result = new ArrayList<>();
 
 			document.select("ul > li").forEach(li -> {
 				final Element href = DocumentUtils.getFirst(li.select("> a[href]"));
-				
+
 				if (href == null) {
 					System.out.println("Warning: Could not find href element in category list item, skipping");
 					return;
 				}
-				
+
 				final String title = href.attr("title");
 				final String text = href.text();
 
@@ -102,53 +167,223 @@ public class MediaWikiClient {
 				return link.absUrl("href");
 			}).findFirst().orElse(null);
 
-			if (nextUrl != null && !nextUrl.isBlank()) {
-				result.addAll(getCategories(nextUrl));
-			}
+			return new ListingChunkRecord<>(result, nextUrl == null || nextUrl.isBlank() ? null : nextUrl);
+		});
+	}
+
+	/**
+	 * Falls back to the scraper if the first chunk of the API cannot be fetched.
+	 * Failures of later chunks are not recovered, the items before have already
+	 * been consumed.
+	 */
+	private static <T> Stream<T> orElse(final Stream<T> api, final Supplier<Stream<T>> scraper, final String what,
+			final String url) {
+		final Iterator<T> iterator = api.iterator();
+
+		try {
+			iterator.hasNext();
+		} catch (final RuntimeException e) {
+			System.out.println("Warning: Could not enumerate " + what + " through the API, scraping " + url
+					+ " instead: " + ConcurrencyUtils.unwrap(e).getMessage());
+
+			return scraper.get();
 		}
 
-		return result;
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
 	}
 
 	public static String getHtml(final String url) throws IOException, InterruptedException {
-		final HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create(url))
-				.timeout(Duration.ofMillis(10 * 1000)).header("Authorization", "Basic " + Config.OPTIONAL_AUTH).build();
+		return ConcurrencyUtils.await(getHtmlAsync(url));
+	}
+
+	public static CompletableFuture<String> getHtmlAsync(final String url) {
+		return openAsync(url).thenApplyAsync(body -> {
+			try (InputStream in = body.body()) {
+				return new String(in.readAllBytes(), HttpClientUtils.charset(body.charsetName()));
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, bodyExecutor);
+	}
+
+	/**
+	 * Fetches a page of the wiki and parses it while the body is being received,
+	 * without holding the whole page as a String. The parsing happens on the
+	 * calling thread.
+	 */
+	public static Document getDocument(final String url, final String baseUri)
+			throws IOException, InterruptedException {
+		return parse(ConcurrencyUtils.await(openAsync(url)), baseUri);
+	}
+
+	public static CompletableFuture<Document> getDocumentAsync(final String url, final String baseUri) {
+		return openAsync(url).thenApplyAsync(body -> {
+			try {
+				return parse(body, baseUri);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, bodyExecutor);
+	}
+
+	/**
+	 * Fetches a skinned page of the wiki and parses only its heading and body
+	 * content, which are located in the raw HTML while it is received. The whole
+	 * page, which has been read while scanning, is parsed if they are not found.
+	 */
+	public static Document getContentDocument(final String url, final String baseUri)
+			throws IOException, InterruptedException {
+		final ResponseBodyRecord body = ConcurrencyUtils.await(openAsync(url));
+		final StringBuilder scanned = new StringBuilder();
+		final String contentRegion;
+
+		try (Reader reader = new InputStreamReader(body.body(), HttpClientUtils.charset(body.charsetName()))) {
+			contentRegion = ContentRegionUtils.extractContentRegion(new BufferedReader(reader), scanned);
+		}
+
+		if (contentRegion == null) {
+			System.out.println("Warning: Could not locate the content of " + url + ", parsing the whole page");
+
+			return Jsoup.parse(scanned.toString(), baseUri);
+		}
+
+		return Jsoup.parseBodyFragment(contentRegion, baseUri);
+	}
+
+	/**
+	 * Fetches an XML response of the wiki, e.g. of the Action API.
+	 */
+	public static CompletableFuture<Document> getXmlDocumentAsync(final String url) {
+		return openAsync(url).thenApplyAsync(body -> {
+			try (InputStream in = body.body()) {
+				return Jsoup.parse(in, body.charsetName(), Config.MEDIAWIKI_URL, Parser.xmlParser());
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, bodyExecutor);
+	}
+
+	private static Document parse(final ResponseBodyRecord body, final String baseUri) throws IOException {
+		try (InputStream in = body.body()) {
+			return Jsoup.parse(in, body.charsetName(), baseUri);
+		}
+	}
+
+	private static CompletableFuture<ResponseBodyRecord> openAsync(final String url) {
+		return openAsync(url, newWikiRequest(url));
+	}
+
+	/**
+	 * Opens the decoded body of a response through the response cache. Responses
+	 * are requested gzip-compressed. Cached responses are revalidated, in offline
+	 * mode they are served without sending the request.
+	 */
+	private static CompletableFuture<ResponseBodyRecord> openAsync(final String url,
+			final HttpRequest.Builder request) {
+		final CachedResponseRecord cached = ResponseCacheUtils.get(url);
+
+		if (ResponseCacheUtils.isOffline()) {
+			if (cached == null) {
+				return CompletableFuture.failedFuture(new IOException("Not cached, cannot fetch in offline mode: " + url));
+			}
+
+			return CompletableFuture.supplyAsync(() -> openCached(cached), bodyExecutor);
+		}
+
+		final HttpRequest httpRequest = ResponseCacheUtils.addValidators(request, cached)
+				.header("Accept-Encoding", "gzip, deflate").build();
+
+		// the body is read on the body executor, blocking reads on the HTTP executor could starve the client
+		return HttpClientUtils.sendOrRetryAsync(httpRequest, BodyHandlers.ofInputStream()).thenApplyAsync(response -> {
+			try {
+				if (response.statusCode() == 304 && cached != null) {
+					response.body().close();
+
+					return openCached(cached);
+				} else if (response.statusCode() < 200 || response.statusCode() >= 300) {
+					response.body().close();
+
+					throw new MediaWikiHttpException(url, response.statusCode());
+				}
+
+				if (ResponseCacheUtils.isEnabled()) {
+					return openCached(ResponseCacheUtils.put(url, response.headers(), response.body()));
+				}
 
-		final HttpResponse<String> response = HttpClientUtils.sendOrRetry(httpRequest, BodyHandlers.ofString());
+				final String contentType = response.headers().firstValue("Content-Type").orElse(null);
 
-		if (response.statusCode() < 200 || response.statusCode() >= 300) {
-			throw new RuntimeException();
-		} else {
-			return response.body();
+				return new ResponseBodyRecord(url, HttpClientUtils.decode(response.body(), response.headers()),
+						HttpClientUtils.charsetName(contentType));
+			} catch (final IOException | RuntimeException e) {
+				// the request is in flight until its body is closed
+				HttpClientUtils.discard(response);
+
+				throw e instanceof IOException ioException ? new UncheckedIOException(ioException)
+						: (RuntimeException) e;
+			}
+		}, bodyExecutor);
+	}
+
+	private static ResponseBodyRecord openCached(final CachedResponseRecord cached) {
+		try {
+			return new ResponseBodyRecord(cached.url(), ResponseCacheUtils.openBody(cached),
+					HttpClientUtils.charsetName(cached.contentType()));
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 
 	public static List<MediaWikiPageRecord> getPages() throws IOException, InterruptedException {
-		return getPages(ALL_PAGES_START_URL);
+		return ConcurrencyUtils.await(getPagesAsync());
 	}
 
-	private static List<MediaWikiPageRecord> getPages(final String url) throws IOException, InterruptedException {
-		System.out.println("Fetching " + url);
+	/**
+	 * Collects the pages in the background.
+	 */
+	public static CompletableFuture<List<MediaWikiPageRecord>> getPagesAsync() {
+		return CompletableFuture.supplyAsync(() -> streamPages().toList(), bodyExecutor);
+	}
 
-		final HttpRequest httpRequest = HttpRequest.newBuilder().uri(URI.create(url))
-				.timeout(Duration.ofMillis(10 * 1000)).header("Authorization", "Basic " + Config.OPTIONAL_AUTH).build();
+	/**
+	 * Lazily enumerates the pages through the Action API, or by scraping
+	 * Special:AllPages if the API is disabled or not available. The next chunk is
+	 * fetched while the pages of the current chunk are consumed.
+	 */
+	public static Stream<MediaWikiPageRecord> streamPages() {
+		return streamPages(0);
+	}
+
+	/**
+	 * Lazily enumerates the pages of the namespaces one after another.
+	 */
+	public static Stream<MediaWikiPageRecord> streamPages(final Collection<Integer> namespaces) {
+		return namespaces.stream().flatMap(MediaWikiClient::streamPages);
+	}
 
-		final HttpResponse<String> response = HttpClientUtils.sendOrRetry(httpRequest, BodyHandlers.ofString());
+	private static Stream<MediaWikiPageRecord> streamPages(final int namespace) {
+		final String startUrl = namespace == 0 ? ALL_PAGES_START_URL : ALL_PAGES_START_URL + "?namespace=" + namespace;
 
-		final List<MediaWikiPageRecord> result = new ArrayList<>();
+		if (!Config.USE_API) {
+			return ChunkIterator.stream(startUrl, url -> scrapePagesChunkAsync(namespace, url));
+		}
 
-		if (response.statusCode() < 200 || response.statusCode() >= 300) {
-			throw new RuntimeException();
-		} else {
-			final String body = response.body();
-			final Document document = Jsoup.parse(body, Config.MEDIAWIKI_URL);
+		return orElse(MediaWikiApiClient.streamPages(namespace),
+				() -> ChunkIterator.stream(startUrl, url -> scrapePagesChunkAsync(namespace, url)), "pages", startUrl);
+	}
+
+	private static CompletableFuture<ListingChunkRecord<String, MediaWikiPageRecord>> scrapePagesChunkAsync(
+			final int namespace, final String url) {
+		System.out.println("Fetching " + url);
+
+		return getDocumentAsync(url, Config.MEDIAWIKI_URL).thenApply(document -> {
+			final List<MediaWikiPageRecord> result = new ArrayList<>();
 
 			document.select("table.mw-allpages-table-chunk a[href]").forEach(link -> {
 				final String absUrl = link.absUrl("href");
 				final String classNames = link.attr("class");
 				final boolean isRedirect = classNames.contains("mw-redirect");
 
-				result.add(new MediaWikiPageRecord(absUrl, isRedirect));
+				result.add(new MediaWikiPageRecord(absUrl, isRedirect, null, null, namespace, null, null));
 			});
 
 			final String nextUrl = document.select(".mw-allpages-nav a[href]").stream().filter(link -> {
@@ -157,11 +392,7 @@ public class MediaWikiClient {
 				return link.absUrl("href");
 			}).findFirst().orElse(null);
 
-			if (nextUrl != null && !nextUrl.isBlank()) {
-				result.addAll(getPages(nextUrl));
-			}
-		}
-
-		return result;
+			return new ListingChunkRecord<>(result, nextUrl == null || nextUrl.isBlank() ? null : nextUrl);
+		});
 	}
 }
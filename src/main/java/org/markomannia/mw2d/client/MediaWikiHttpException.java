@@ -0,0 +1,28 @@
+package org.markomannia.mw2d.client;
+
+/**
+ * Thrown when MediaWiki answers with a non-2xx status code, after retries have
+ * been exhausted.
+ */
+public class MediaWikiHttpException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String url;
+
+	private final int statusCode;
+
+	public MediaWikiHttpException(final String url, final int statusCode) {
+		super("HTTP " + statusCode + " for " + url);
+		this.url = url;
+		this.statusCode = statusCode;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+}
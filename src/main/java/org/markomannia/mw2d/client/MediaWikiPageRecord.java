@@ -1,4 +1,14 @@
 package org.markomannia.mw2d.client;
 
-public record MediaWikiPageRecord(String url, boolean isRedirect) {
+/**
+ * A page of the wiki. Pages enumerated by the Action API also carry title, page
+ * ID, namespace, page_touched and revision ID, pages scraped from
+ * Special:AllPages only URL, redirect flag and namespace.
+ */
+public record MediaWikiPageRecord(String url, boolean isRedirect, String title, Integer pageId, Integer namespace,
+		String touched, Long revisionId) {
+
+	public MediaWikiPageRecord(final String url, final boolean isRedirect) {
+		this(url, isRedirect, null, null, null, null, null);
+	}
 }
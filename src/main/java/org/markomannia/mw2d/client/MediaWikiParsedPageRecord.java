@@ -0,0 +1,13 @@
+package org.markomannia.mw2d.client;
+
+import java.util.List;
+
+import org.jsoup.nodes.Document;
+
+/**
+ * A page as returned by action=parse. The document holds the rendered body
+ * only, the categories are the visible categories of the page.
+ */
+public record MediaWikiParsedPageRecord(String title, String displayTitle, List<String> categories,
+		Document document) {
+}
@@ -0,0 +1,10 @@
+package org.markomannia.mw2d.client;
+
+import java.io.InputStream;
+
+/**
+ * Decoded body of a response. charsetName is null if the server did not declare
+ * a charset.
+ */
+public record ResponseBodyRecord(String url, InputStream body, String charsetName) {
+}
@@ -0,0 +1,118 @@
+package org.markomannia.mw2d.client.util;
+
+import java.net.http.HttpHeaders;
+import java.util.Arrays;
+
+/**
+ * Adjusts the limit of an AsyncLimiter with additive increase and
+ * multiplicative decrease (AIMD). The limit grows by one per window of
+ * responses while latency and error rate are healthy. It is halved when the
+ * p95 latency of a window rises well above the best p95 seen so far, when too
+ * many requests of a window fail, or immediately when the server reports that
+ * it is overloaded (503, 429 or MediaWiki maxlag).
+ */
+public class AdaptiveConcurrencyController {
+
+	private static final int WINDOW_SIZE = 50;
+
+	private static final double MAX_ERROR_RATE = 0.1;
+
+	/**
+	 * Growth of the baseline latency per window, so that the baseline follows a
+	 * permanently slower server instead of throttling forever.
+	 */
+	private static final double BASELINE_DRIFT = 1.05;
+
+	private final AsyncLimiter limiter;
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final double latencyTolerance;
+
+	private final long[] latencies = new long[WINDOW_SIZE];
+
+	private int samples = 0;
+
+	private int errors = 0;
+
+	private int completionsSinceDecrease = 0;
+
+	private double baselineP95 = -1;
+
+	public AdaptiveConcurrencyController(final AsyncLimiter limiter, final int minLimit, final int maxLimit,
+			final double latencyTolerance) {
+		this.limiter = limiter;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyTolerance = latencyTolerance;
+	}
+
+	public static boolean isOverloaded(final Integer statusCode, final HttpHeaders headers) {
+		if (statusCode != null && (statusCode == 503 || statusCode == 429)) {
+			return true;
+		}
+
+		return headers != null && (headers.firstValue("X-Database-Lag").isPresent()
+				|| headers.firstValue("MediaWiki-API-Error").map("maxlag"::equals).orElse(false));
+	}
+
+	public synchronized void onResponse(final long latencyNanos, final Integer statusCode, final HttpHeaders headers,
+			final Throwable exception) {
+		completionsSinceDecrease++;
+
+		if (isOverloaded(statusCode, headers)) {
+			// requests sent before the last decrease report the same overload again
+			if (completionsSinceDecrease >= limiter.limit()) {
+				decrease("server overloaded, HTTP " + statusCode);
+			}
+
+			return;
+		}
+
+		latencies[samples++] = latencyNanos;
+
+		if (exception != null || (statusCode != null && statusCode >= 500)) {
+			errors++;
+		}
+
+		if (samples == WINDOW_SIZE) {
+			evaluateWindow();
+		}
+	}
+
+	private void evaluateWindow() {
+		final long[] sorted = Arrays.copyOf(latencies, samples);
+		Arrays.sort(sorted);
+
+		final double p95 = sorted[(int) Math.ceil(0.95 * sorted.length) - 1];
+		final double errorRate = (double) errors / samples;
+
+		baselineP95 = baselineP95 < 0 ? p95 : Math.min(p95, baselineP95 * BASELINE_DRIFT);
+
+		samples = 0;
+		errors = 0;
+
+		if (errorRate > MAX_ERROR_RATE) {
+			decrease("error rate " + Math.round(errorRate * 100) + "%");
+		} else if (p95 > baselineP95 * latencyTolerance) {
+			decrease("p95 latency " + Math.round(p95 / 1_000_000) + " ms");
+		} else if (limiter.limit() < maxLimit && limiter.inFlight() + limiter.queued() >= limiter.limit()) {
+			// only grow while the limit is actually used
+			limiter.setLimit(limiter.limit() + 1);
+		}
+	}
+
+	private void decrease(final String reason) {
+		final int newLimit = Math.max(minLimit, limiter.limit() / 2);
+
+		completionsSinceDecrease = 0;
+
+		if (newLimit != limiter.limit()) {
+			System.out.println("Reducing concurrent requests to " + newLimit + " (" + reason + ")");
+
+			limiter.setLimit(newLimit);
+		}
+	}
+}
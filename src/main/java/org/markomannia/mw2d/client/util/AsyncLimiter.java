@@ -0,0 +1,110 @@
+package org.markomannia.mw2d.client.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits the number of asynchronous operations in flight. Operations above the
+ * limit are queued without blocking the caller and started as soon as a running
+ * operation releases its permit.
+ */
+public class AsyncLimiter {
+
+	private final Deque<Runnable> queue = new ArrayDeque<>();
+
+	private int limit;
+
+	private int inFlight = 0;
+
+	public AsyncLimiter(final int limit) {
+		this.limit = Math.max(1, limit);
+	}
+
+	/**
+	 * Returns a future that completes with a permit as soon as an operation may
+	 * start. The operation is in flight until the permit is run, running it again
+	 * has no effect.
+	 */
+	public CompletableFuture<Runnable> acquire() {
+		final CompletableFuture<Runnable> result = new CompletableFuture<>();
+		final AtomicBoolean released = new AtomicBoolean();
+
+		final Runnable permit = () -> {
+			if (released.compareAndSet(false, true)) {
+				release();
+			}
+		};
+
+		final Runnable start = () -> result.complete(permit);
+
+		final boolean startNow;
+
+		synchronized (this) {
+			startNow = inFlight < limit;
+
+			if (startNow) {
+				inFlight++;
+			} else {
+				queue.add(start);
+			}
+		}
+
+		if (startNow) {
+			start.run();
+		}
+
+		return result;
+	}
+
+	private void release() {
+		Runnable next;
+
+		synchronized (this) {
+			inFlight--;
+		}
+
+		while ((next = poll()) != null) {
+			next.run();
+		}
+	}
+
+	private synchronized Runnable poll() {
+		if (inFlight >= limit || queue.isEmpty()) {
+			return null;
+		}
+
+		inFlight++;
+
+		return queue.poll();
+	}
+
+	public synchronized int limit() {
+		return limit;
+	}
+
+	/**
+	 * Changes the limit. Operations already in flight are not affected, queued
+	 * operations are started if the limit was raised.
+	 */
+	public void setLimit(final int limit) {
+		synchronized (this) {
+			this.limit = Math.max(1, limit);
+		}
+
+		Runnable next;
+
+		while ((next = poll()) != null) {
+			next.run();
+		}
+	}
+
+	public synchronized int inFlight() {
+		return inFlight;
+	}
+
+	public synchronized int queued() {
+		return queue.size();
+	}
+}
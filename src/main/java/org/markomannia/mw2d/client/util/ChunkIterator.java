@@ -0,0 +1,78 @@
+package org.markomannia.mw2d.client.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.markomannia.mw2d.client.ListingChunkRecord;
+import org.markomannia.mw2d.util.ConcurrencyUtils;
+
+/**
+ * Lazily iterates over a listing that the wiki returns in chunks. As soon as a
+ * chunk arrives the next one is requested, so that at most one chunk is
+ * fetched ahead of the consumer. Items are available as soon as the first
+ * chunk is parsed, and memory does not grow with the number of chunks.
+ */
+public class ChunkIterator<K, T> implements Iterator<T> {
+
+	private final Function<K, CompletableFuture<ListingChunkRecord<K, T>>> fetcher;
+
+	private Iterator<T> current = Collections.emptyIterator();
+
+	private CompletableFuture<ListingChunkRecord<K, T>> pending;
+
+	public ChunkIterator(final K first, final Function<K, CompletableFuture<ListingChunkRecord<K, T>>> fetcher) {
+		this.fetcher = fetcher;
+		this.pending = fetcher.apply(first);
+	}
+
+	public static <K, T> Stream<T> stream(final K first,
+			final Function<K, CompletableFuture<ListingChunkRecord<K, T>>> fetcher) {
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(new ChunkIterator<>(first, fetcher), Spliterator.ORDERED), false);
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!current.hasNext()) {
+			if (pending == null) {
+				return false;
+			}
+
+			final ListingChunkRecord<K, T> chunk = await(pending);
+
+			pending = chunk.next() != null ? fetcher.apply(chunk.next()) : null;
+			current = chunk.items().iterator();
+		}
+
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		return current.next();
+	}
+
+	private static <R> R await(final CompletableFuture<R> future) {
+		try {
+			return ConcurrencyUtils.await(future);
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package org.markomannia.mw2d.client.util;
+
+import java.time.Duration;
+
+/**
+ * Circuit breaker for a single host. After a number of consecutive failures the
+ * circuit opens and requests are held back for a while. Afterwards a single
+ * probe request is let through: if it succeeds the circuit closes again,
+ * otherwise it stays open for another period.
+ */
+public class CircuitBreaker {
+
+	private final String host;
+
+	private final int failureThreshold;
+
+	private final Duration openDuration;
+
+	private int consecutiveFailures = 0;
+
+	private long openUntil = 0;
+
+	private boolean probeInFlight = false;
+
+	public CircuitBreaker(final String host, final int failureThreshold, final Duration openDuration) {
+		this.host = host;
+		this.failureThreshold = failureThreshold;
+		this.openDuration = openDuration;
+	}
+
+	/**
+	 * Returns null if a request may be sent now, or the time to wait before asking
+	 * again.
+	 */
+	public synchronized Duration tryAcquire() {
+		if (consecutiveFailures < failureThreshold) {
+			return null;
+		}
+
+		final long now = System.currentTimeMillis();
+
+		if (now < openUntil) {
+			return Duration.ofMillis(openUntil - now);
+		} else if (probeInFlight) {
+			return Duration.ofMillis(Math.max(100, openDuration.toMillis() / 10));
+		} else {
+			probeInFlight = true;
+			return null;
+		}
+	}
+
+	public synchronized void onSuccess() {
+		if (consecutiveFailures >= failureThreshold) {
+			System.out.println("Circuit for " + host + " closed");
+		}
+
+		consecutiveFailures = 0;
+		probeInFlight = false;
+	}
+
+	public synchronized void onFailure() {
+		consecutiveFailures++;
+		probeInFlight = false;
+
+		if (consecutiveFailures >= failureThreshold) {
+			if (System.currentTimeMillis() >= openUntil) {
+				System.out.println("Circuit for " + host + " opened for " + openDuration);
+			}
+
+			openUntil = System.currentTimeMillis() + openDuration.toMillis();
+		}
+	}
+}
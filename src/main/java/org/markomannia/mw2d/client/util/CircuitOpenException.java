@@ -0,0 +1,16 @@
+package org.markomannia.mw2d.client.util;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request is not sent because the circuit of its host stayed
+ * open for all of its attempts.
+ */
+public class CircuitOpenException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CircuitOpenException(final String host) {
+		super("Circuit for " + host + " is open");
+	}
+}
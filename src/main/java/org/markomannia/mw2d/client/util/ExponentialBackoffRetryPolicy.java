@@ -0,0 +1,110 @@
+package org.markomannia.mw2d.client.util;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiPredicate;
+
+/**
+ * Retries I/O errors, the status codes 429 and 5xx and responses that signal an
+ * overloaded server, like MediaWiki maxlag errors, with exponential backoff and
+ * full jitter. A Retry-After header sent by the server takes precedence over
+ * the computed backoff.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+	private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(408, 429, 500, 502, 503, 504);
+
+	private final int maxAttempts;
+
+	private final Duration baseDelay;
+
+	private final Duration maxDelay;
+
+	private final Duration maxRetryAfter;
+
+	/**
+	 * Tells from the status code and the headers of a response whether the server
+	 * is overloaded.
+	 */
+	private final BiPredicate<Integer, HttpHeaders> overloaded;
+
+	public ExponentialBackoffRetryPolicy(final int maxAttempts, final Duration baseDelay, final Duration maxDelay,
+			final Duration maxRetryAfter, final BiPredicate<Integer, HttpHeaders> overloaded) {
+		this.maxAttempts = maxAttempts;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+		this.maxRetryAfter = maxRetryAfter;
+		this.overloaded = overloaded;
+	}
+
+	@Override
+	public Duration retryDelay(final int attempt, final Integer statusCode, final HttpHeaders headers,
+			final Throwable exception) {
+		if (attempt >= maxAttempts) {
+			return null;
+		}
+
+		if (exception != null) {
+			return exception instanceof IOException ? backoff(attempt) : null;
+		}
+
+		if (!isFailure(statusCode, headers, null)) {
+			return null;
+		}
+
+		final Duration retryAfter = headers == null ? null
+				: headers.firstValue("Retry-After").map(ExponentialBackoffRetryPolicy::parseRetryAfter).orElse(null);
+
+		if (retryAfter == null) {
+			return backoff(attempt);
+		} else if (retryAfter.compareTo(maxRetryAfter) > 0) {
+			System.out.println("Warning: Server asked to retry after " + retryAfter + ", giving up");
+			return null;
+		} else {
+			return retryAfter;
+		}
+	}
+
+	@Override
+	public boolean isFailure(final Integer statusCode, final HttpHeaders headers, final Throwable exception) {
+		return exception != null || statusCode != null && (RETRYABLE_STATUS_CODES.contains(statusCode)
+				|| overloaded.test(statusCode, headers));
+	}
+
+	/**
+	 * Full jitter: a random delay between 0 and the exponentially growing cap.
+	 */
+	private Duration backoff(final int attempt) {
+		final long capMillis = Math.min(maxDelay.toMillis(),
+				baseDelay.toMillis() * (1L << Math.min(attempt - 1, 30)));
+
+		return Duration.ofMillis(ThreadLocalRandom.current().nextLong(capMillis + 1));
+	}
+
+	/**
+	 * Parses a Retry-After header, which is either a number of seconds or an HTTP
+	 * date.
+	 */
+	public static Duration parseRetryAfter(final String value) {
+		final String trimmed = value.trim();
+
+		try {
+			return Duration.ofSeconds(Math.max(0, Long.parseLong(trimmed)));
+		} catch (final NumberFormatException e) {
+			try {
+				final ZonedDateTime date = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME);
+				final Duration result = Duration.between(ZonedDateTime.now(date.getZone()), date);
+
+				return result.isNegative() ? Duration.ZERO : result;
+			} catch (final DateTimeParseException e2) {
+				return null;
+			}
+		}
+	}
+}
@@ -1,20 +1,68 @@
 package org.markomannia.mw2d.client.util;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpClient.Version;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.net.ssl.SSLSession;
+
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.util.ConcurrencyUtils;
 
 public class HttpClientUtils {
 
-	private static HttpClient httpClient;
+	private static final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+	private static final RetryBudget retryBudget = new RetryBudget(Config.HTTP_RETRY_BUDGET_RATIO, 10, 1000);
+
+	private static volatile RetryPolicy retryPolicy = new ExponentialBackoffRetryPolicy(Config.HTTP_RETRY_MAX_ATTEMPTS,
+			Config.HTTP_RETRY_BASE_DELAY, Config.HTTP_RETRY_MAX_DELAY, Config.HTTP_RETRY_MAX_RETRY_AFTER,
+			AdaptiveConcurrencyController::isOverloaded);
+
+	private static volatile HttpClient httpClient;
+
+	/**
+	 * The controller is published before the limiter, so that a thread that sees
+	 * the limiter sees the controller as well.
+	 */
+	private static volatile AsyncLimiter limiter;
+
+	private static volatile AdaptiveConcurrencyController concurrencyController;
 
 	public static HttpClient httpClient() {
 		if (httpClient == null) {
 			synchronized (HttpClientUtils.class) {
 				if (httpClient == null) {
-					httpClient = HttpClient.newBuilder().followRedirects(Redirect.NORMAL).build();
+					final HttpClient.Builder builder = HttpClient.newBuilder().followRedirects(Redirect.NORMAL)
+							.version(Version.HTTP_2).connectTimeout(Config.HTTP_CONNECT_TIMEOUT);
+
+					if (Config.HTTP_EXECUTOR_THREADS > 0) {
+						builder.executor(Executors.newFixedThreadPool(Config.HTTP_EXECUTOR_THREADS, runnable -> {
+							final Thread thread = new Thread(runnable, "mw2d-http");
+							thread.setDaemon(true);
+							return thread;
+						}));
+					}
+
+					httpClient = builder.build();
 				}
 			}
 		}
@@ -22,34 +70,275 @@ public class HttpClientUtils {
 		return httpClient;
 	}
 
+	public static AsyncLimiter limiter() {
+		if (limiter == null) {
+			synchronized (HttpClientUtils.class) {
+				if (limiter == null) {
+					if (Config.HTTP_ADAPTIVE_CONCURRENCY) {
+						final AsyncLimiter adaptiveLimiter = new AsyncLimiter(Config.HTTP_INITIAL_IN_FLIGHT);
+						concurrencyController = new AdaptiveConcurrencyController(adaptiveLimiter,
+								Config.HTTP_MIN_IN_FLIGHT, Config.HTTP_MAX_IN_FLIGHT, Config.HTTP_LATENCY_TOLERANCE);
+						limiter = adaptiveLimiter;
+					} else {
+						limiter = new AsyncLimiter(Config.HTTP_MAX_IN_FLIGHT);
+					}
+				}
+			}
+		}
+
+		return limiter;
+	}
+
 	/**
-	 * Tries to send the request, and retries several times.
+	 * Tries to send the request, and retries according to the retry policy.
 	 *
 	 * DO NOT USE Thread.sleep in this method, this will lead to saturation and cost
 	 * in servers!
 	 */
 	public static <T extends Object> HttpResponse<T> sendOrRetry(final HttpRequest request,
 			final HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
-		HttpResponse<T> result;
+		return ConcurrencyUtils.await(sendOrRetryAsync(request, responseBodyHandler));
+	}
+
+	public static void setRetryPolicy(final RetryPolicy retryPolicy) {
+		HttpClientUtils.retryPolicy = retryPolicy;
+	}
+
+	public static CircuitBreaker circuitBreaker(final String host) {
+		return circuitBreakers.computeIfAbsent(host == null ? "" : host, h -> new CircuitBreaker(h,
+				Config.HTTP_CIRCUIT_BREAKER_FAILURE_THRESHOLD, Config.HTTP_CIRCUIT_BREAKER_OPEN_DURATION));
+	}
+
+	/**
+	 * Sends the request without blocking, and retries according to the retry
+	 * policy. The number of requests in flight is limited, further requests are
+	 * queued. A request whose body is streamed is in flight until its body is
+	 * read or closed, so callers must close it. With
+	 * Config.HTTP_ADAPTIVE_CONCURRENCY the limit follows the latency until the
+	 * headers arrive and the overload signals of the server. Retries are
+	 * scheduled after their delay instead of sleeping.
+	 */
+	public static <T extends Object> CompletableFuture<HttpResponse<T>> sendOrRetryAsync(final HttpRequest request,
+			final HttpResponse.BodyHandler<T> responseBodyHandler) {
+		retryBudget.onRequest();
+
+		return sendOrRetryAsync(request, responseBodyHandler, 1);
+	}
+
+	private static <T extends Object> CompletableFuture<HttpResponse<T>> sendOrRetryAsync(final HttpRequest request,
+			final HttpResponse.BodyHandler<T> responseBodyHandler, final int attempt) {
+		final CircuitBreaker circuitBreaker = circuitBreaker(request.uri().getHost());
+		final Duration circuitWait = circuitBreaker.tryAcquire();
+
+		if (circuitWait != null) {
+			// waiting for the circuit counts as a failed attempt, so that it is bounded
+			final CircuitOpenException cause = new CircuitOpenException(request.uri().getHost());
+			final Duration retryDelay = retryPolicy.retryDelay(attempt, null, null, cause);
+
+			if (retryDelay == null || !retryBudget.tryRetry()) {
+				return CompletableFuture.failedFuture(cause);
+			}
+
+			return delay(retryDelay.compareTo(circuitWait) > 0 ? retryDelay : circuitWait)
+					.thenCompose(v -> sendOrRetryAsync(request, responseBodyHandler, attempt + 1));
+		}
+
+		final AsyncLimiter requestLimiter = limiter();
+		final AdaptiveConcurrencyController controller = concurrencyController;
+
+		return requestLimiter.acquire().thenCompose(permit -> {
+			final long start = System.nanoTime();
+
+			final CompletableFuture<HttpResponse<T>> sent;
 
-		try {
-			result = httpClient().send(request, responseBodyHandler);
-		} catch (final IOException | InterruptedException firstException) {
 			try {
-				result = httpClient().send(request, responseBodyHandler);
-			} catch (final IOException | InterruptedException secondException) {
-				try {
-					result = httpClient().send(request, responseBodyHandler);
-				} catch (final IOException | InterruptedException thirdException) {
-					try {
-						result = httpClient().send(request, responseBodyHandler);
-					} catch (final IOException | InterruptedException fourthException) {
-						throw fourthException;
-					}
+				sent = httpClient().sendAsync(request, responseBodyHandler);
+			} catch (final RuntimeException e) {
+				permit.run();
+				throw e;
+			}
+
+			return sent.whenComplete((response, exception) -> {
+				// the latency of the server ends with the headers, reading the body is up to the caller
+				if (controller != null) {
+					controller.onResponse(System.nanoTime() - start, response == null ? null : response.statusCode(),
+							response == null ? null : response.headers(), exception);
+				}
+
+				if (exception != null) {
+					permit.run();
 				}
+			}).thenApply(response -> whenBodyDone(response, permit));
+		}).handle((response, exception) -> {
+			final Throwable cause = exception == null ? null : ConcurrencyUtils.unwrap(exception);
+			final Integer statusCode = response == null ? null : response.statusCode();
+			final HttpHeaders headers = response == null ? null : response.headers();
+
+			if (retryPolicy.isFailure(statusCode, headers, cause)) {
+				circuitBreaker.onFailure();
+			} else {
+				circuitBreaker.onSuccess();
+			}
+
+			final Duration retryDelay = retryPolicy.retryDelay(attempt, statusCode, headers, cause);
+
+			if (retryDelay != null && retryBudget.tryRetry()) {
+				discard(response);
+
+				System.out.println("Retrying " + request.uri() + " in " + retryDelay.toMillis() + " ms ("
+						+ (cause != null ? cause.toString() : "HTTP " + statusCode) + ")");
+
+				return delay(retryDelay).thenCompose(v -> sendOrRetryAsync(request, responseBodyHandler,
+						attempt + 1));
+			} else if (retryDelay != null) {
+				System.out.println("Warning: Retry budget exhausted, not retrying " + request.uri());
 			}
+
+			if (cause != null) {
+				return CompletableFuture.<HttpResponse<T>>failedFuture(cause);
+			} else {
+				return CompletableFuture.completedFuture(response);
+			}
+		}).thenCompose(future -> future);
+	}
+
+	/**
+	 * A body streamed as InputStream is received only while the caller reads it,
+	 * so the request counts as in flight until the body is read to the end or
+	 * closed. Other bodies are received completely before the response completes.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> HttpResponse<T> whenBodyDone(final HttpResponse<T> response, final Runnable onDone) {
+		if (response.body() instanceof InputStream body) {
+			return new TrackedResponse<>(response, (T) new ReleasingInputStream(body, exception -> onDone.run()));
 		}
 
-		return result;
+		onDone.run();
+
+		return response;
+	}
+
+	private static CompletableFuture<Void> delay(final Duration duration) {
+		return CompletableFuture.runAsync(() -> {
+		}, CompletableFuture.delayedExecutor(duration.toMillis(), TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * Releases the connection of a response that is not handed to the caller.
+	 */
+	public static void discard(final HttpResponse<?> response) {
+		if (response != null && response.body() instanceof Closeable closeable) {
+			try {
+				closeable.close();
+			} catch (final IOException e) {
+				// ignore, the response is discarded anyway
+			}
+		}
+	}
+
+	/**
+	 * Returns the charset declared in a Content-Type header, or null if it has
+	 * none.
+	 */
+	public static String charsetName(final String contentType) {
+		if (contentType != null) {
+			for (final String parameter : contentType.split(";")) {
+				final String trimmed = parameter.trim();
+
+				if (trimmed.toLowerCase().startsWith("charset=")) {
+					return trimmed.substring(8).replace("\"", "");
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the charset of the given name, UTF-8 if there is none.
+	 */
+	public static Charset charset(final String charsetName) {
+		if (charsetName != null) {
+			try {
+				return Charset.forName(charsetName);
+			} catch (final IllegalArgumentException e) {
+				System.out.println("Warning: Unknown charset " + charsetName);
+			}
+		}
+
+		return StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * Wraps a response body so that it is decompressed according to its
+	 * Content-Encoding while it is read.
+	 */
+	public static InputStream decode(final InputStream body, final HttpHeaders headers) throws IOException {
+		final String contentEncoding = headers.firstValue("Content-Encoding").orElse("").trim().toLowerCase();
+
+		switch (contentEncoding) {
+		case "gzip":
+		case "x-gzip":
+			return new GZIPInputStream(body);
+		case "deflate":
+			return new InflaterInputStream(body);
+		default:
+			return body;
+		}
+	}
+
+	/**
+	 * Response whose body is replaced by a wrapper.
+	 */
+	private static class TrackedResponse<T> implements HttpResponse<T> {
+
+		private final HttpResponse<T> response;
+
+		private final T body;
+
+		private TrackedResponse(final HttpResponse<T> response, final T body) {
+			this.response = response;
+			this.body = body;
+		}
+
+		@Override
+		public int statusCode() {
+			return response.statusCode();
+		}
+
+		@Override
+		public HttpRequest request() {
+			return response.request();
+		}
+
+		@Override
+		public Optional<HttpResponse<T>> previousResponse() {
+			return response.previousResponse();
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return response.headers();
+		}
+
+		@Override
+		public T body() {
+			return body;
+		}
+
+		@Override
+		public Optional<SSLSession> sslSession() {
+			return response.sslSession();
+		}
+
+		@Override
+		public URI uri() {
+			return response.uri();
+		}
+
+		@Override
+		public Version version() {
+			return response.version();
+		}
 	}
-}
\ No newline at end of file
+}
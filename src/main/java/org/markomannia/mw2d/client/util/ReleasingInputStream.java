@@ -0,0 +1,70 @@
+package org.markomannia.mw2d.client.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Input stream that reports once when it is done: when it is read to the end
+ * or closed, with null, or when reading fails, with the exception.
+ */
+public class ReleasingInputStream extends FilterInputStream {
+
+	private final Consumer<IOException> onDone;
+
+	private boolean done = false;
+
+	public ReleasingInputStream(final InputStream in, final Consumer<IOException> onDone) {
+		super(in);
+		this.onDone = onDone;
+	}
+
+	@Override
+	public int read() throws IOException {
+		try {
+			final int result = super.read();
+
+			if (result < 0) {
+				done(null);
+			}
+
+			return result;
+		} catch (final IOException e) {
+			done(e);
+			throw e;
+		}
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		try {
+			final int result = super.read(b, off, len);
+
+			if (result < 0) {
+				done(null);
+			}
+
+			return result;
+		} catch (final IOException e) {
+			done(e);
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			super.close();
+		} finally {
+			done(null);
+		}
+	}
+
+	private synchronized void done(final IOException exception) {
+		if (!done) {
+			done = true;
+			onDone.accept(exception);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package org.markomannia.mw2d.client.util;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.client.CacheMode;
+import org.markomannia.mw2d.client.CachedResponseRecord;
+
+/**
+ * Disk cache for responses of MediaWiki, stored below Config.CACHE_PATH. Each
+ * entry is a single file with the validators of the response as properties,
+ * followed by the gzip-compressed body, so that it is published by one atomic
+ * move. Entries are keyed by URL and credentials.
+ */
+public class ResponseCacheUtils {
+
+	public static boolean isEnabled() {
+		return Config.CACHE_MODE != CacheMode.OFF;
+	}
+
+	public static boolean isOffline() {
+		return Config.CACHE_MODE == CacheMode.OFFLINE;
+	}
+
+	private static String key(final String url) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			final byte[] hash = digest.digest((url + "\n" + Config.OPTIONAL_AUTH).getBytes(StandardCharsets.UTF_8));
+
+			return HexFormat.of().formatHex(hash);
+		} catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static Path entryPath(final String url) {
+		final String key = key(url);
+
+		return Paths.get(Config.CACHE_PATH, key.substring(0, 2), key + ".entry").normalize();
+	}
+
+	public static CachedResponseRecord get(final String url) {
+		if (!isEnabled()) {
+			return null;
+		}
+
+		final Path path = entryPath(url);
+
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		final Properties meta = new Properties();
+
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+			meta.load(new StringReader(in.readUTF()));
+		} catch (final IOException e) {
+			System.out.println("Warning: Could not read cache entry for " + url + ": " + e.getMessage());
+			return null;
+		}
+
+		return new CachedResponseRecord(url, meta.getProperty("etag"), meta.getProperty("lastModified"),
+				meta.getProperty("contentType"), path);
+	}
+
+	/**
+	 * Adds the validators of the cached response to the request, so that the
+	 * server can answer 304 Not Modified.
+	 */
+	public static HttpRequest.Builder addValidators(final HttpRequest.Builder builder,
+			final CachedResponseRecord cached) {
+		if (cached != null && cached.etag() != null) {
+			builder.header("If-None-Match", cached.etag());
+		}
+
+		if (cached != null && cached.lastModified() != null) {
+			builder.header("If-Modified-Since", cached.lastModified());
+		}
+
+		return builder;
+	}
+
+	public static InputStream openBody(final CachedResponseRecord cached) throws IOException {
+		final InputStream in = Files.newInputStream(cached.path());
+
+		try {
+			// skip the validators, DataInputStream reads no further than them
+			new DataInputStream(in).readUTF();
+
+			return new GZIPInputStream(in);
+		} catch (final IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Stores a response while it is received. A gzip-encoded body is stored as
+	 * is, any other body is decoded and compressed.
+	 */
+	public static CachedResponseRecord put(final String url, final HttpHeaders headers, final InputStream body)
+			throws IOException {
+		final Path path = entryPath(url);
+		Files.createDirectories(path.getParent());
+
+		final Properties meta = new Properties();
+		meta.setProperty("url", url);
+		headers.firstValue("ETag").ifPresent(v -> meta.setProperty("etag", v));
+		headers.firstValue("Last-Modified").ifPresent(v -> meta.setProperty("lastModified", v));
+		headers.firstValue("Content-Type").ifPresent(v -> meta.setProperty("contentType", v));
+
+		final StringWriter metaText = new StringWriter();
+		meta.store(metaText, null);
+
+		final String contentEncoding = headers.firstValue("Content-Encoding").orElse("").trim().toLowerCase();
+
+		// write to a temporary file first, concurrent readers never see partial entries
+		final Path tmp = Files.createTempFile(path.getParent(), "entry", ".tmp");
+
+		try {
+			try (InputStream in = body; OutputStream out = Files.newOutputStream(tmp)) {
+				final DataOutputStream data = new DataOutputStream(out);
+				data.writeUTF(metaText.toString());
+				data.flush();
+
+				if (contentEncoding.equals("gzip") || contentEncoding.equals("x-gzip")) {
+					in.transferTo(out);
+				} else {
+					final GZIPOutputStream compressed = new GZIPOutputStream(out);
+					HttpClientUtils.decode(in, headers).transferTo(compressed);
+					compressed.finish();
+				}
+			}
+
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+
+		return new CachedResponseRecord(url, meta.getProperty("etag"), meta.getProperty("lastModified"),
+				meta.getProperty("contentType"), path);
+	}
+}
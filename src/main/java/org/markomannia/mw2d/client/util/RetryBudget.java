@@ -0,0 +1,35 @@
+package org.markomannia.mw2d.client.util;
+
+/**
+ * Limits retries to a fraction of the regular requests, so that a failing
+ * server is not flooded with retries. Every request deposits a fraction of a
+ * token, every retry withdraws a whole token.
+ */
+public class RetryBudget {
+
+	private final double ratio;
+
+	private final double maxTokens;
+
+	private double tokens;
+
+	public RetryBudget(final double ratio, final int minTokens, final int maxTokens) {
+		this.ratio = ratio;
+		this.maxTokens = maxTokens;
+		this.tokens = minTokens;
+	}
+
+	public synchronized void onRequest() {
+		tokens = Math.min(maxTokens, tokens + ratio);
+	}
+
+	public synchronized boolean tryRetry() {
+		if (tokens < 1) {
+			return false;
+		}
+
+		tokens--;
+
+		return true;
+	}
+}
@@ -0,0 +1,31 @@
+package org.markomannia.mw2d.client.util;
+
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+
+/**
+ * Decides whether and when a failed request is sent again.
+ */
+public interface RetryPolicy {
+
+	/**
+	 * Returns the delay before the next attempt, or null if the request must not
+	 * be retried.
+	 *
+	 * @param attempt    the number of the attempt that failed, starting with 1
+	 * @param statusCode the status code of the response, or null if no response
+	 *                   was received
+	 * @param headers    the headers of the response, or null if no response was
+	 *                   received
+	 * @param exception  the exception of the attempt, or null if a response was
+	 *                   received
+	 */
+	Duration retryDelay(int attempt, Integer statusCode, HttpHeaders headers, Throwable exception);
+
+	/**
+	 * Returns whether the outcome of an attempt is a failure of the server, which
+	 * counts towards opening its circuit breaker. The parameters are those of
+	 * {@link #retryDelay}.
+	 */
+	boolean isFailure(Integer statusCode, HttpHeaders headers, Throwable exception);
+}
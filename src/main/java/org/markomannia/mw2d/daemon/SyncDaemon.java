@@ -0,0 +1,199 @@
+package org.markomannia.mw2d.daemon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.Main;
+import org.markomannia.mw2d.client.util.AsyncLimiter;
+import org.markomannia.mw2d.client.util.HttpClientUtils;
+import org.markomannia.mw2d.manifest.ManifestRecord;
+import org.markomannia.mw2d.manifest.util.ManifestUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Syncs the output with the wiki in a long-running JVM. The HTTP client, the
+ * converter, the manifest and the index of the titles and categories of the
+ * wiki stay in memory between syncs. Each sync updates the index from the
+ * recent changes of the wiki, see WikiIndex, and migrates incrementally.
+ *
+ * Syncs run one at a time on a single thread, every poll interval or when
+ * requested with POST /trigger. Triggers while a sync is queued are coalesced.
+ * GET /health reports the state of the daemon. Both endpoints are bound to
+ * localhost only.
+ */
+public class SyncDaemon {
+
+	private final int port;
+
+	private final Duration pollInterval;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		return new Thread(runnable, "mw2d-sync");
+	});
+
+	private final AtomicBoolean syncQueued = new AtomicBoolean();
+
+	private volatile boolean syncing;
+
+	private volatile ManifestRecord manifest;
+
+	private final WikiIndex index = new WikiIndex();
+
+	private volatile long syncs;
+
+	private volatile long failedSyncs;
+
+	private volatile Instant lastSyncAt;
+
+	private volatile Duration lastSyncDuration;
+
+	private volatile String lastError;
+
+	public SyncDaemon(final int port, final Duration pollInterval) {
+		this.port = port;
+		this.pollInterval = pollInterval;
+	}
+
+	/**
+	 * Starts the endpoints and the polling, and blocks until the JVM shuts down.
+	 */
+	public void run() throws IOException, InterruptedException {
+		manifest = ManifestUtils.read(Path.of(Config.MANIFEST_PATH));
+
+		final HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/health", this::handleHealth);
+		server.createContext("/trigger", this::handleTrigger);
+		server.start();
+
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.stop(0);
+			executor.shutdownNow();
+		}));
+
+		System.out.println("Sync daemon listening on http://localhost:" + port + "/, syncing every "
+				+ pollInterval.toSeconds() + " s");
+
+		executor.scheduleWithFixedDelay(this::trigger, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+	}
+
+	/**
+	 * Queues a sync unless one is queued already. Returns whether a sync was
+	 * queued.
+	 */
+	public boolean trigger() {
+		if (!syncQueued.compareAndSet(false, true)) {
+			return false;
+		}
+
+		executor.execute(this::sync);
+
+		return true;
+	}
+
+	private void sync() {
+		syncQueued.set(false);
+		syncing = true;
+
+		final long start = System.nanoTime();
+
+		try {
+			index.refresh();
+			manifest = Main.migrate(index.pages(), index.categories(), manifest);
+			lastError = null;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (final IOException | RuntimeException e) {
+			System.out.println("Warning: Sync failed: " + e);
+			lastError = e.toString();
+			failedSyncs++;
+		} catch (final Throwable e) {
+			// errors would otherwise vanish in the executor, and the state of the JVM is not to be trusted after them
+			System.out.println("Error: Sync failed, stopping the daemon: " + e);
+			e.printStackTrace(System.out);
+			System.exit(1);
+		} finally {
+			syncing = false;
+		}
+
+		syncs++;
+		lastSyncAt = Instant.now();
+		lastSyncDuration = Duration.ofNanos(System.nanoTime() - start);
+	}
+
+	private void handleTrigger(final HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST")) {
+			respond(exchange, 405, "{\"error\":\"POST required\"}");
+			return;
+		}
+
+		respond(exchange, 202, "{\"queued\":" + trigger() + "}");
+	}
+
+	private void handleHealth(final HttpExchange exchange) throws IOException {
+		final AsyncLimiter limiter = HttpClientUtils.limiter();
+		final ManifestRecord currentManifest = manifest;
+
+		final String body = "{" //
+				+ "\"status\":" + json(lastError == null ? "ok" : "failing") //
+				+ ",\"syncing\":" + syncing //
+				+ ",\"queuedSyncs\":" + (syncQueued.get() ? 1 : 0) //
+				+ ",\"httpInFlight\":" + limiter.inFlight() //
+				+ ",\"httpQueued\":" + limiter.queued() //
+				+ ",\"syncs\":" + syncs //
+				+ ",\"failedSyncs\":" + failedSyncs //
+				+ ",\"lastSyncAt\":" + json(lastSyncAt == null ? null : lastSyncAt.toString()) //
+				+ ",\"lastSyncMillis\":" + (lastSyncDuration == null ? "null" : lastSyncDuration.toMillis()) //
+				+ ",\"lastError\":" + json(lastError) //
+				+ ",\"articles\":" + (currentManifest == null ? 0 : currentManifest.entries().size()) //
+				+ "}";
+
+		respond(exchange, lastError == null ? 200 : 503, body);
+	}
+
+	private static void respond(final HttpExchange exchange, final int statusCode, final String body)
+			throws IOException {
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(statusCode, bytes.length);
+
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static String json(final String value) {
+		if (value == null) {
+			return "null";
+		}
+
+		final StringBuilder result = new StringBuilder("\"");
+
+		for (final char c : value.toCharArray()) {
+			if (c == '"' || c == '\\') {
+				result.append('\\').append(c);
+			} else if (c < 0x20) {
+				result.append(String.format("\\u%04x", (int) c));
+			} else {
+				result.append(c);
+			}
+		}
+
+		return result.append('"').toString();
+	}
+}
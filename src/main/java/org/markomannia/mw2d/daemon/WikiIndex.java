@@ -0,0 +1,210 @@
+package org.markomannia.mw2d.daemon;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.client.MediaWikiApiClient;
+import org.markomannia.mw2d.client.MediaWikiCategoryRecord;
+import org.markomannia.mw2d.client.MediaWikiClient;
+import org.markomannia.mw2d.client.MediaWikiPageRecord;
+import org.markomannia.mw2d.selection.PageSelector;
+import org.markomannia.mw2d.util.ConcurrencyUtils;
+
+/**
+ * Titles and categories of the wiki, kept in memory between the syncs of the
+ * daemon. They are enumerated completely once, and then updated from the
+ * recent changes: pages that were created, edited, moved or deleted, pages
+ * that embed a changed template or use a changed file, and categories whose
+ * members changed. Every Config.DAEMON_FULL_REFRESH_INTERVAL, and whenever an
+ * update fails, they are enumerated again, which also picks up changes that
+ * the recent changes do not report.
+ *
+ * The index is only used by the sync thread.
+ */
+public class WikiIndex {
+
+	/**
+	 * Recent changes are requested from a bit before the last update, so that
+	 * changes are not missed if the clocks of the wiki and the daemon differ.
+	 */
+	private static final long CLOCK_TOLERANCE_SECONDS = 60;
+
+	/**
+	 * Order of the enumeration of the categories.
+	 */
+	private static final Comparator<String> CATEGORY_ORDER = Comparator.comparing(text -> text.replace(' ', '_'));
+
+	private static final int FILE_NAMESPACE = 6;
+
+	private final Set<Integer> namespaces = PageSelector.ALL.namespacesToEnumerate();
+
+	private Map<String, MediaWikiPageRecord> pagesByTitles = new LinkedHashMap<>();
+
+	private Map<String, MediaWikiCategoryRecord> categoriesByTexts = new TreeMap<>(CATEGORY_ORDER);
+
+	/**
+	 * Time of the last complete enumeration, null if the index has to be
+	 * enumerated.
+	 */
+	private Instant enumeratedAt;
+
+	private Instant updatedAt;
+
+	/**
+	 * Brings the index up to date, from the recent changes or by enumerating the
+	 * wiki.
+	 */
+	public void refresh() throws IOException, InterruptedException {
+		final Instant now = Instant.now();
+
+		if (enumeratedAt == null || now.isAfter(enumeratedAt.plus(Config.DAEMON_FULL_REFRESH_INTERVAL))) {
+			enumerate(now);
+			return;
+		}
+
+		try {
+			update(now);
+		} catch (final IOException | RuntimeException e) {
+			System.out.println("Warning: Could not update the index from the recent changes, enumerating the wiki: "
+					+ e);
+
+			enumeratedAt = null;
+			enumerate(now);
+		}
+	}
+
+	/**
+	 * Returns the pages in the order of their enumeration.
+	 */
+	public Stream<MediaWikiPageRecord> pages() {
+		return pagesByTitles.values().stream();
+	}
+
+	public List<MediaWikiCategoryRecord> categories() {
+		return List.copyOf(categoriesByTexts.values());
+	}
+
+	private void enumerate(final Instant now) throws IOException, InterruptedException {
+		final Map<String, MediaWikiPageRecord> pages = new LinkedHashMap<>();
+		final Map<String, MediaWikiCategoryRecord> categories = new TreeMap<>(CATEGORY_ORDER);
+
+		MediaWikiClient.streamPages(namespaces).forEach(page -> pages.put(page.title() != null ? page.title()
+				: page.url(), page));
+		MediaWikiClient.streamCategories().forEach(category -> categories.put(category.text(), category));
+
+		pagesByTitles = pages;
+		categoriesByTexts = categories;
+		updatedAt = now;
+
+		// pages scraped from Special:AllPages lack the titles that the recent changes refer to
+		if (pages.values().stream().allMatch(page -> page.title() != null)) {
+			enumeratedAt = now;
+		} else {
+			System.out.println("Warning: Pages were not enumerated through the API, the index cannot be updated");
+		}
+
+		System.out.println("Enumerated " + pages.size() + " pages and " + categories.size() + " categories");
+	}
+
+	private void update(final Instant now) throws IOException, InterruptedException {
+		final String since = updatedAt.minusSeconds(CLOCK_TOLERANCE_SECONDS).truncatedTo(ChronoUnit.SECONDS)
+				.toString();
+
+		final Set<String> changedTitles = new HashSet<>();
+		final Set<String> changedCategories = new HashSet<>();
+		final Map<String, Integer> changedEmbeddedTitles = new HashMap<>();
+
+		MediaWikiApiClient.streamRecentChanges(since).forEach(change -> {
+			if (change.type().equals("categorize")) {
+				changedCategories.add(change.title().substring(change.title().indexOf(':') + 1));
+				return;
+			}
+
+			addChangedTitle(change.namespace(), change.title(), changedTitles, changedEmbeddedTitles);
+
+			if (change.targetTitle() != null) {
+				addChangedTitle(change.targetNamespace(), change.targetTitle(), changedTitles, changedEmbeddedTitles);
+			}
+		});
+
+		for (final Map.Entry<String, Integer> embedded : changedEmbeddedTitles.entrySet()) {
+			for (final int namespace : namespaces) {
+				MediaWikiApiClient.streamEmbeddingPages(embedded.getKey(), embedded.getValue() == FILE_NAMESPACE,
+						namespace).forEach(changedTitles::add);
+			}
+		}
+
+		updatePages(new ArrayList<>(changedTitles));
+		updateCategories(new ArrayList<>(changedCategories));
+
+		updatedAt = now;
+
+		System.out.println("Updated the index from the recent changes, " + changedTitles.size() + " pages and "
+				+ changedCategories.size() + " categories changed");
+	}
+
+	private void addChangedTitle(final Integer namespace, final String title, final Set<String> changedTitles,
+			final Map<String, Integer> changedEmbeddedTitles) {
+		if (namespaces.contains(namespace)) {
+			changedTitles.add(title);
+		} else if (namespace != null && namespace > 0 && namespace % 2 == 0) {
+			// templates, modules and files change the pages that embed them, talk pages are never embedded
+			changedEmbeddedTitles.put(title, namespace);
+		}
+	}
+
+	private void updatePages(final List<String> titles) throws IOException, InterruptedException {
+		if (titles.isEmpty()) {
+			return;
+		}
+
+		final List<MediaWikiPageRecord> pages = new ArrayList<>();
+
+		for (int i = 0; i < titles.size(); i += MediaWikiApiClient.TITLES_PER_REQUEST) {
+			final List<String> batch = titles.subList(i, Math.min(i + MediaWikiApiClient.TITLES_PER_REQUEST,
+					titles.size()));
+
+			pages.addAll(ConcurrencyUtils.await(MediaWikiApiClient.getPagesAsync(batch)));
+		}
+
+		final Map<String, MediaWikiPageRecord> result = new LinkedHashMap<>(pagesByTitles);
+		titles.forEach(result::remove);
+		pages.stream().filter(page -> namespaces.contains(page.namespace()))
+				.forEach(page -> result.put(page.title(), page));
+
+		// keep the order of the enumeration: by namespace, then as in Special:AllPages
+		final List<MediaWikiPageRecord> sorted = new ArrayList<>(result.values());
+		sorted.sort(Comparator.comparing(MediaWikiPageRecord::namespace)
+				.thenComparing(page -> page.title().replace(' ', '_')));
+
+		pagesByTitles = new LinkedHashMap<>();
+		sorted.forEach(page -> pagesByTitles.put(page.title(), page));
+	}
+
+	private void updateCategories(final List<String> texts) throws IOException, InterruptedException {
+		final Map<String, MediaWikiCategoryRecord> result = new TreeMap<>(CATEGORY_ORDER);
+		result.putAll(categoriesByTexts);
+
+		for (int i = 0; i < texts.size(); i += MediaWikiApiClient.TITLES_PER_REQUEST) {
+			final List<String> batch = texts.subList(i, Math.min(i + MediaWikiApiClient.TITLES_PER_REQUEST,
+					texts.size()));
+
+			batch.forEach(result::remove);
+			result.putAll(ConcurrencyUtils.await(MediaWikiApiClient.getCategoriesAsync(batch)));
+		}
+
+		categoriesByTexts = result;
+	}
+}
@@ -0,0 +1,182 @@
+package org.markomannia.mw2d.document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiPredicate;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Elements;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeFilter.FilterResult;
+import org.jsoup.select.NodeTraversor;
+import org.markomannia.mw2d.assets.AssetRecord;
+
+/**
+ * Applies registered rules to the elements of a document in a single
+ * depth-first pass. Rules are looked up by tag, rules without tag apply to all
+ * elements and run first. The rules of an element run in the order of
+ * registration, until a rule removes the element or skips its children.
+ *
+ * The processor is immutable once its rules are registered and can be shared
+ * between threads, the state of a pass is kept in a {@link Pass}.
+ */
+public class DocumentProcessor {
+
+	public enum Result {
+
+		CONTINUE,
+
+		/**
+		 * The children of the element are not visited, and no further rules are
+		 * applied to the element.
+		 */
+		SKIP_CHILDREN,
+
+		/**
+		 * The element and its children are removed.
+		 */
+		REMOVE
+	}
+
+	@FunctionalInterface
+	public interface Action {
+		Result apply(Element element, Pass pass);
+	}
+
+	private record RuleRecord(BiPredicate<Element, Pass> predicate, Action action) {
+	}
+
+	/**
+	 * State of a single pass: the assets found, the titles linked, and the paths
+	 * that links to wiki pages are rewritten to.
+	 */
+	public static class Pass {
+
+		private final Map<String, String> pathsByTitles;
+
+		private final Map<String, AssetRecord> assets = new HashMap<>();
+
+		private final Set<String> linkedTitles = new TreeSet<>();
+
+		private int parserOutputDepth = 0;
+
+		private Pass(final Map<String, String> pathsByTitles) {
+			this.pathsByTitles = pathsByTitles;
+		}
+
+		public Map<String, String> pathsByTitles() {
+			return pathsByTitles;
+		}
+
+		public Map<String, AssetRecord> assets() {
+			return assets;
+		}
+
+		public Set<String> linkedTitles() {
+			return linkedTitles;
+		}
+
+		/**
+		 * Whether the current element is inside of .mw-parser-output.
+		 */
+		public boolean inParserOutput() {
+			return parserOutputDepth > 0;
+		}
+	}
+
+	private final Map<String, List<RuleRecord>> rulesByTag = new HashMap<>();
+
+	private final List<RuleRecord> rulesForAllTags = new ArrayList<>();
+
+	public DocumentProcessor rule(final String tag, final BiPredicate<Element, Pass> predicate, final Action action) {
+		final RuleRecord rule = new RuleRecord(predicate, action);
+
+		if (tag == null) {
+			rulesForAllTags.add(rule);
+		} else {
+			rulesByTag.computeIfAbsent(tag, t -> new ArrayList<>()).add(rule);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Applies the rules to the elements and their descendants. Links are rewritten
+	 * to the paths of pathsByTitles.
+	 */
+	public Pass process(final Elements elements, final Map<String, String> pathsByTitles) {
+		final Pass pass = new Pass(pathsByTitles);
+
+		final NodeFilter filter = new NodeFilter() {
+
+			@Override
+			public FilterResult head(final Node node, final int depth) {
+				if (!(node instanceof Element element)) {
+					return FilterResult.CONTINUE;
+				}
+
+				final boolean isParserOutput = element.hasClass("mw-parser-output");
+
+				if (isParserOutput) {
+					pass.parserOutputDepth++;
+				}
+
+				final FilterResult result = apply(element, pass);
+
+				if (isParserOutput && result == FilterResult.REMOVE) {
+					// tail is not called for removed elements
+					pass.parserOutputDepth--;
+				}
+
+				return result;
+			}
+
+			@Override
+			public FilterResult tail(final Node node, final int depth) {
+				if (node instanceof Element element && element.hasClass("mw-parser-output")) {
+					pass.parserOutputDepth--;
+				}
+
+				return FilterResult.CONTINUE;
+			}
+		};
+
+		for (final Element element : elements) {
+			NodeTraversor.filter(filter, element);
+		}
+
+		return pass;
+	}
+
+	private FilterResult apply(final Element element, final Pass pass) {
+		final FilterResult result = apply(rulesForAllTags, element, pass);
+
+		if (result != FilterResult.CONTINUE) {
+			return result;
+		}
+
+		return apply(rulesByTag.getOrDefault(element.normalName(), List.of()), element, pass);
+	}
+
+	private static FilterResult apply(final List<RuleRecord> rules, final Element element, final Pass pass) {
+		for (final RuleRecord rule : rules) {
+			if (rule.predicate().test(element, pass)) {
+				switch (rule.action().apply(element, pass)) {
+				case REMOVE:
+					return FilterResult.REMOVE;
+				case SKIP_CHILDREN:
+					return FilterResult.SKIP_CHILDREN;
+				default:
+					break;
+				}
+			}
+		}
+
+		return FilterResult.CONTINUE;
+	}
+}
@@ -0,0 +1,245 @@
+package org.markomannia.mw2d.document.util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Locates the content region of a skinned MediaWiki page in the raw HTML, so
+ * that the navigation, tools and scripts around it do not have to be parsed.
+ * The HTML is scanned tag by tag while it is read, only the content region is
+ * kept.
+ */
+public class ContentRegionUtils {
+
+	private static final String HEADING_ID = "firstHeading";
+
+	private static final String BODY_CONTENT_ID = "bodyContent";
+
+	/**
+	 * The id attribute of a tag, its value double quoted, single quoted or
+	 * unquoted.
+	 */
+	private static final Pattern ID_ATTRIBUTE = Pattern
+			.compile("(?i)\\sid\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'=<>`]+))");
+
+	/**
+	 * Returns the HTML of #firstHeading and #bodyContent, or null if one of them
+	 * cannot be located.
+	 */
+	public static String extractContentRegion(final String html) {
+		try {
+			return extractContentRegion(new StringReader(html));
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Like {@link #extractContentRegion(Reader)}, and appends the HTML read to
+	 * scanned. If the region is not located, the whole HTML has been read, and
+	 * can be parsed from scanned without reading it again.
+	 */
+	public static String extractContentRegion(final Reader reader, final StringBuilder scanned) throws IOException {
+		return extractContentRegion(new FilterReader(reader) {
+
+			@Override
+			public int read() throws IOException {
+				final int c = super.read();
+
+				if (c >= 0) {
+					scanned.append((char) c);
+				}
+
+				return c;
+			}
+
+			@Override
+			public int read(final char[] buffer, final int offset, final int length) throws IOException {
+				final int count = super.read(buffer, offset, length);
+
+				if (count > 0) {
+					scanned.append(buffer, offset, count);
+				}
+
+				return count;
+			}
+		});
+	}
+
+	/**
+	 * Reads the HTML until #firstHeading and #bodyContent have been read, and
+	 * returns their HTML, or null if one of them cannot be located or its end is
+	 * missing. Only headings and divs are supported. Comments, scripts and styles
+	 * are skipped when the divs are counted.
+	 */
+	public static String extractContentRegion(final Reader reader) throws IOException {
+		String heading = null;
+		String bodyContent = null;
+
+		// the element being read, its tag name and the number of its open tags
+		StringBuilder region = null;
+		String regionTag = null;
+		int depth = 0;
+
+		int c;
+
+		while ((c = reader.read()) >= 0) {
+			if (c != '<') {
+				if (region != null) {
+					region.append((char) c);
+				}
+
+				continue;
+			}
+
+			String tag = readTag(reader);
+
+			if (tag == null) {
+				return null;
+			}
+
+			final String name = tagName(tag);
+
+			if (name.equals("script") || name.equals("style")) {
+				tag += readRawText(reader, "</" + name);
+			}
+
+			if (region == null) {
+				if (heading == null && name.matches("h[1-6]") && HEADING_ID.equals(id(tag))
+						|| bodyContent == null && name.equals("div") && BODY_CONTENT_ID.equals(id(tag))) {
+					region = new StringBuilder(tag);
+					regionTag = name;
+					depth = 1;
+				}
+
+				continue;
+			}
+
+			region.append(tag);
+
+			if (name.equals(regionTag)) {
+				depth++;
+			} else if (name.equals("/" + regionTag)) {
+				depth--;
+			}
+
+			if (depth == 0) {
+				if (regionTag.equals("div")) {
+					bodyContent = region.toString();
+				} else {
+					heading = region.toString();
+				}
+
+				if (heading != null && bodyContent != null) {
+					return heading + bodyContent;
+				}
+
+				region = null;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads a tag after its opening angle bracket, or a whole comment. Returns
+	 * null if the HTML ends first.
+	 */
+	private static String readTag(final Reader reader) throws IOException {
+		final StringBuilder result = new StringBuilder("<");
+		int c;
+
+		while ((c = reader.read()) >= 0) {
+			result.append((char) c);
+
+			if (c == '>') {
+				final boolean comment = result.indexOf("<!--") == 0;
+
+				if (!comment || result.length() >= 7 && endsWithIgnoreCase(result, "-->")) {
+					return result.toString();
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Reads the text of a script or style up to and including its closing tag.
+	 */
+	private static String readRawText(final Reader reader, final String end) throws IOException {
+		final StringBuilder result = new StringBuilder();
+		boolean closing = false;
+		int c;
+
+		while ((c = reader.read()) >= 0) {
+			result.append((char) c);
+
+			if (closing && c == '>') {
+				return result.toString();
+			} else if (!closing && endsWithIgnoreCase(result, end)) {
+				closing = true;
+			}
+		}
+
+		return result.toString();
+	}
+
+	private static boolean endsWithIgnoreCase(final StringBuilder text, final String suffix) {
+		final int offset = text.length() - suffix.length();
+
+		if (offset < 0) {
+			return false;
+		}
+
+		for (int i = 0; i < suffix.length(); i++) {
+			if (Character.toLowerCase(text.charAt(offset + i)) != Character.toLowerCase(suffix.charAt(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the value of the id attribute of the tag, or null if it has none.
+	 */
+	private static String id(final String tag) {
+		final Matcher matcher = ID_ATTRIBUTE.matcher(tag);
+
+		if (!matcher.find()) {
+			return null;
+		}
+
+		for (int group = 1; group <= 3; group++) {
+			if (matcher.group(group) != null) {
+				return matcher.group(group);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the lower case name of the tag, with a leading slash for closing
+	 * tags.
+	 */
+	private static String tagName(final String tag) {
+		int end = 1;
+
+		if (end < tag.length() && tag.charAt(end) == '/') {
+			end++;
+		}
+
+		while (end < tag.length() && Character.isLetterOrDigit(tag.charAt(end))) {
+			end++;
+		}
+
+		return tag.substring(1, end).toLowerCase();
+	}
+}
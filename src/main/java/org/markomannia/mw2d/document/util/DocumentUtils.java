@@ -1,90 +1,128 @@
 package org.markomannia.mw2d.document.util;
 
 import java.util.Map;
+import java.util.Set;
 
-import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import org.markomannia.mw2d.articles.ArticleRecord;
-import org.markomannia.mw2d.articles.util.ArticleUtils;
+import org.markomannia.mw2d.assets.util.AssetUtils;
+import org.markomannia.mw2d.document.DocumentProcessor;
+import org.markomannia.mw2d.document.DocumentProcessor.Result;
 import org.markomannia.mw2d.util.UrlUtils;
 
 public class DocumentUtils {
 
-	public static void cleanDocument(final Document document) {
-		// remove toc
-		document.select("#toc").remove();
-		
-		// remove "From XTENTO Support Wiki" subtitle
-		document.select("#siteSub").remove();
-		
-		// remove "(Redirected from ...)" notice in contentSub
-		document.select("#contentSub").remove();
-
-		// remove Tondateibeschreibungsseite mit Lizenzangabe around files
-		document.select(".mw-parser-output sup a").remove();
-
-		// remove loudspeaker images
-		document.select(".mw-parser-output .image[href*=\"Loudspeaker\"]").remove();
-
-		// remove magnify/enlarge icons from thumbnails
-		document.select(".magnify").remove();
-		document.select("a[title=Enlarge]").remove();
-		document.select("img[src*=magnify-clip]").remove();
-
-		// remove Vorlage_Begriffsklaerung
-		document.select("#Vorlage_Begriffsklaerung").remove();
-
-		// remove a href around images
-		document.select(".mw-parser-output .image").removeAttr("href");
-		
-		// remove "Retrieved from" footer
-		document.select("#catlinks").remove();
-		document.select(".printfooter").remove();
-		
-		// remove "(Redirected from ...)" notice (class-based)
-		document.select(".mw-redirectedfrom").remove();
-		
-		// Clean syntax-highlighted code blocks - strip span tags but keep text
-		// MediaWiki uses spans like <span class="re0">$order</span> for syntax highlighting
-		for (Element pre : document.select("pre")) {
-			// Get text content only, stripping all HTML tags
-			String plainCode = pre.text();
-			pre.html(plainCode);
-		}
+	private static final Set<String> IDS_REMOVED = Set.of(
+			// toc
+			"toc",
+			// "From XTENTO Support Wiki" subtitle
+			"siteSub",
+			// "(Redirected from ...)" notice in contentSub
+			"contentSub",
+			// Vorlage_Begriffsklaerung
+			"Vorlage_Begriffsklaerung",
+			// "Retrieved from" footer
+			"catlinks");
+
+	private static final Set<String> CLASSES_REMOVED = Set.of(
+			// magnify/enlarge icons of thumbnails
+			"magnify",
+			// "Retrieved from" footer
+			"printfooter",
+			// "(Redirected from ...)" notice (class-based)
+			"mw-redirectedfrom");
+
+	private static final DocumentProcessor PROCESSOR = new DocumentProcessor()
+			.rule(null, (element, pass) -> IDS_REMOVED.contains(element.id()), DocumentUtils::remove)
+			.rule(null, (element, pass) -> element.classNames().stream().anyMatch(CLASSES_REMOVED::contains),
+					DocumentUtils::remove)
+			// remove loudspeaker images
+			.rule(null, (element, pass) -> pass.inParserOutput() && element.hasClass("image")
+					&& element.attr("href").toLowerCase().contains("loudspeaker"), DocumentUtils::remove)
+			// remove a href around images
+			.rule(null, (element, pass) -> pass.inParserOutput() && element.hasClass("image"), (element, pass) -> {
+				element.removeAttr("href");
+				return Result.CONTINUE;
+			})
+			// remove Tondateibeschreibungsseite mit Lizenzangabe around files
+			.rule("a", (element, pass) -> pass.inParserOutput() && element.closest("sup") != null,
+					DocumentUtils::remove)
+			// remove magnify/enlarge icons from thumbnails
+			.rule("a", (element, pass) -> element.attr("title").equalsIgnoreCase("Enlarge"), DocumentUtils::remove)
+			.rule("img", (element, pass) -> element.attr("src").toLowerCase().contains("magnify-clip"),
+					DocumentUtils::remove)
+			.rule("pre", (element, pass) -> true, DocumentUtils::flattenCodeBlock)
+			.rule("img", (element, pass) -> true, AssetUtils::rewriteImage)
+			.rule("a", (element, pass) -> AssetUtils.isFileLink(element), AssetUtils::rewriteFileLink)
+			.rule("a", (element, pass) -> element.hasAttr("href"), DocumentUtils::rewriteLink);
+
+	/**
+	 * Cleans the elements for the conversion to markdown, and rewrites the assets
+	 * and the links to wiki pages in a single pass. Links are rewritten to the
+	 * paths of the articles, keyed by title, links to titles without article are
+	 * removed. The pass returns the assets found and the titles linked, with
+	 * spaces instead of underscores.
+	 */
+	public static DocumentProcessor.Pass preprocess(final Elements elements, final Map<String, String> pathsByTitles) {
+		return PROCESSOR.process(elements, pathsByTitles);
 	}
 
-	public static Element getFirst(final Elements elements) {
-		return elements.stream().findFirst().orElse(null);
+	private static Result remove(final Element element, final DocumentProcessor.Pass pass) {
+		return Result.REMOVE;
 	}
 
-	public static void rewriteLinks(final Elements elements, final Map<String, ArticleRecord> articlesByTitles) {
-		// rewrite a href to /index.php?title=
-		elements.select("a[href*=\"/index.php?title=\"]").forEach(a -> {
-			final String url = UrlUtils.urlDecode(a.attr("href"));
+	/**
+	 * Cleans syntax-highlighted code blocks - strips span tags but keeps text.
+	 * MediaWiki uses spans like <span class="re0">$order</span> for syntax
+	 * highlighting.
+	 */
+	private static Result flattenCodeBlock(final Element pre, final DocumentProcessor.Pass pass) {
+		pre.html(pre.text());
+
+		return Result.SKIP_CHILDREN;
+	}
+
+	private static Result rewriteLink(final Element a, final DocumentProcessor.Pass pass) {
+		final String href = a.attr("href");
+
+		if (href.contains("/index.php?title=")) {
+			addLinkedTitle(UrlUtils.getQueryMapForQuery(href.substring(href.indexOf('?') + 1)).get("title"), pass);
+
+			final String url = UrlUtils.urlDecode(href);
 			final String query = url.replace("/index.php?", "");
 
 			final Map<String, String> queryMap = UrlUtils.getQueryMapForQuery(query);
 			final String title = queryMap.get("title");
 
-			final ArticleRecord article = articlesByTitles.get(title);
+			final String newPath = pass.pathsByTitles().get(title);
 
-			if (article == null) {
+			if (newPath == null) {
 				a.removeAttr("href");
 			} else {
-				final String newPath = ArticleUtils.determineArticleWithCategoryPath(article);
 				a.attr("href", newPath);
 			}
-		});
-		
-		// Rewrite /wiki/ links to root links
-		elements.select("a[href^=\"/wiki/\"]").forEach(a -> {
-			String href = a.attr("href");
-			// Remove /wiki/ prefix
-			href = href.replace("/wiki/", "/");
-			// Convert Category: links to normal paths
-			href = href.replace("Category:", "");
-			a.attr("href", href);
-		});
+		} else if (href.startsWith("/wiki/")) {
+			addLinkedTitle(UrlUtils.urlDecode(href.substring(6)), pass);
+
+			// Rewrite /wiki/ links to root links, and Category: links to normal paths
+			a.attr("href", href.replace("/wiki/", "/").replace("Category:", ""));
+		}
+
+		return Result.CONTINUE;
+	}
+
+	private static void addLinkedTitle(final String title, final DocumentProcessor.Pass pass) {
+		if (title != null) {
+			final int fragmentIndex = title.indexOf('#');
+			final String titleWithoutFragment = fragmentIndex < 0 ? title : title.substring(0, fragmentIndex);
+
+			if (!titleWithoutFragment.isBlank()) {
+				pass.linkedTitles().add(titleWithoutFragment.replace('_', ' '));
+			}
+		}
+	}
+
+	public static Element getFirst(final Elements elements) {
+		return elements.stream().findFirst().orElse(null);
 	}
 }
@@ -5,12 +5,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.markomannia.mw2d.Config;
 import org.markomannia.mw2d.articles.ArticleRecord;
+import org.markomannia.mw2d.articles.RedirectRecord;
+import org.markomannia.mw2d.articles.util.ArticleUtils;
 import org.markomannia.mw2d.client.MediaWikiCategoryRecord;
+import org.markomannia.mw2d.util.UrlUtils;
 
 public class DocusaurusConfigWriter {
 
@@ -139,7 +143,14 @@ public class DocusaurusConfigWriter {
 		System.out.println("Written Docusaurus sidebar to " + sidebarPath);
 	}
 	
-	public static void writeDocusaurusConfig(final List<ArticleRecord> articles) throws IOException {
+	/**
+	 * Writes the Docusaurus configuration. Redirects are generated from the
+	 * original wiki paths of the articles, and from the wiki paths of the
+	 * redirect pages, keyed by title, to the article they point to, or to the
+	 * heading of its section.
+	 */
+	public static void writeDocusaurusConfig(final List<ArticleRecord> articles,
+			final Map<String, RedirectRecord> redirects) throws IOException {
 		// Build redirects list for Docusaurus plugin (creates actual HTML files at old paths)
 		final StringBuilder redirectsArray = new StringBuilder();
 		redirectsArray.append("[\n");
@@ -147,15 +158,7 @@ public class DocusaurusConfigWriter {
 		// Generate redirects from original MediaWiki URLs to new clean URLs
 		for (final ArticleRecord article : articles) {
 			final String fromUrl = article.fromUrl();
-			final String fromTitle = article.fromTitle();
-			
-			// Main_Page is the homepage, so redirect to /
-			String newPath;
-			if (fromTitle.equals("Main_Page") || fromTitle.equals("Main Page")) {
-				newPath = "/";
-			} else {
-				newPath = "/" + org.markomannia.mw2d.util.UrlUtils.cleanFileName(fromTitle);
-			}
+			final String newPath = newPath(article);
 			
 			// Extract the original wiki path from the URL (e.g., /wiki/Magento_2_Extensions:Advanced_Order_Status)
 			String originalWikiPath = null;
@@ -178,29 +181,19 @@ public class DocusaurusConfigWriter {
 			}
 			
 			if (originalWikiPath != null) {
-				// Add redirect from original wiki path (with colons) to new path (with slashes)
-				redirectsArray.append("      { from: '").append(escapeJavaScript(originalWikiPath)).append("', to: '").append(escapeJavaScript(newPath)).append("' },\n");
-				
-				// Also add URL-encoded version (: -> %3A) for browser compatibility
-				if (originalWikiPath.contains(":")) {
-					final String encodedWikiPath = originalWikiPath.replace(":", "%3A");
-					redirectsArray.append("      { from: '").append(escapeJavaScript(encodedWikiPath)).append("', to: '").append(escapeJavaScript(newPath)).append("' },\n");
-				}
-				
-				// Also add redirect without /wiki/ prefix
-				final String pathWithoutWiki = originalWikiPath.replace("/wiki/", "/");
-				if (!pathWithoutWiki.equals(newPath)) {
-					redirectsArray.append("      { from: '").append(escapeJavaScript(pathWithoutWiki)).append("', to: '").append(escapeJavaScript(newPath)).append("' },\n");
-					
-					// Also URL-encoded version without /wiki/
-					if (pathWithoutWiki.contains(":")) {
-						final String encodedPath = pathWithoutWiki.replace(":", "%3A");
-						redirectsArray.append("      { from: '").append(escapeJavaScript(encodedPath)).append("', to: '").append(escapeJavaScript(newPath)).append("' },\n");
-					}
-				}
+				appendRedirects(redirectsArray, originalWikiPath, newPath);
 			}
 		}
 		
+		// Redirect pages of the wiki point straight to the doc of their target
+		for (final Map.Entry<String, RedirectRecord> redirect : redirects.entrySet()) {
+			final RedirectRecord target = redirect.getValue();
+			final String newPath = newPath(target.article());
+
+			appendRedirects(redirectsArray, "/wiki/" + UrlUtils.encodeTitle(redirect.getKey()),
+					target.fragment() == null ? newPath : newPath + "#" + headingId(target.fragment()));
+		}
+		
 		redirectsArray.append("    ]");
 		
 		// Also write _redirects for Cloudflare (backup)
@@ -425,6 +418,49 @@ article h1 {
 		System.out.println("Written custom.css to " + cssPath);
 	}
 	
+	private static String newPath(final ArticleRecord article) {
+		// Main_Page is the homepage, so redirect to /
+		if (article.fromTitle().equals("Main_Page") || article.fromTitle().equals("Main Page")) {
+			return "/";
+		}
+
+		return "/" + ArticleUtils.cleanArticleFileName(article.fromTitle());
+	}
+
+	/**
+	 * Returns the id Docusaurus gives to the heading of the section, the way
+	 * github-slugger derives it from the heading text.
+	 */
+	static String headingId(final String section) {
+		return section.toLowerCase(Locale.ROOT)
+				.replaceAll("[^\\p{L}\\p{M}\\p{N}\\p{Pc} -]", "")
+				.replace(' ', '-');
+	}
+
+	private static void appendRedirects(final StringBuilder redirectsArray, final String originalWikiPath,
+			final String newPath) {
+		// Add redirect from original wiki path (with colons) to new path (with slashes)
+		redirectsArray.append("      { from: '").append(escapeJavaScript(originalWikiPath)).append("', to: '").append(escapeJavaScript(newPath)).append("' },\n");
+		
+		// Also add URL-encoded version (: -> %3A) for browser compatibility
+		if (originalWikiPath.contains(":")) {
+			final String encodedWikiPath = originalWikiPath.replace(":", "%3A");
+			redirectsArray.append("      { from: '").append(escapeJavaScript(encodedWikiPath)).append("', to: '").append(escapeJavaScript(newPath)).append("' },\n");
+		}
+		
+		// Also add redirect without /wiki/ prefix
+		final String pathWithoutWiki = originalWikiPath.replace("/wiki/", "/");
+		if (!pathWithoutWiki.equals(newPath)) {
+			redirectsArray.append("      { from: '").append(escapeJavaScript(pathWithoutWiki)).append("', to: '").append(escapeJavaScript(newPath)).append("' },\n");
+			
+			// Also URL-encoded version without /wiki/
+			if (pathWithoutWiki.contains(":")) {
+				final String encodedPath = pathWithoutWiki.replace(":", "%3A");
+				redirectsArray.append("      { from: '").append(escapeJavaScript(encodedPath)).append("', to: '").append(escapeJavaScript(newPath)).append("' },\n");
+			}
+		}
+	}
+
 	private static String escapeJavaScript(final String str) {
 		return str.replace("\\", "\\\\")
 				.replace("'", "\\'")
@@ -434,7 +470,7 @@ article h1 {
 	}
 	
 	private static String cleanPathForSidebar(final String title) {
-		// Use the same logic as ArticleUtils.cleanArticleFileName to match actual file paths
-		return org.markomannia.mw2d.util.UrlUtils.cleanFileName(title);
+		// Use ArticleUtils.cleanArticleFileName to match actual file paths
+		return ArticleUtils.cleanArticleFileName(title);
 	}
 }
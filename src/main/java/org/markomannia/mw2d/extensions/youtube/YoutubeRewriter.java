@@ -1,9 +1,13 @@
 package org.markomannia.mw2d.extensions.youtube;
 
+import java.util.regex.Pattern;
+
 public class YoutubeRewriter {
 
+	private static final Pattern YOUTUBE = Pattern
+			.compile("\\{\\{#ev:youtube\\|([A-Za-z0-9-_]+)(\\|[0-9]+)?(\\|(right|left))?\\}\\}");
+
 	public static String rewriteYoutubeLinks(final String markdown) {
-		return markdown.replaceAll("\\{\\{#ev:youtube\\|([A-Za-z0-9-_]+)(\\|[0-9]+)?(\\|(right|left))?\\}\\}",
-				"[YouTube-Video](https://youtu.be/$1)");
+		return YOUTUBE.matcher(markdown).replaceAll("[YouTube-Video](https://youtu.be/$1)");
 	}
 }
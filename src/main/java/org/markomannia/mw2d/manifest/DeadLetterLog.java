@@ -0,0 +1,58 @@
+package org.markomannia.mw2d.manifest;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tab separated list of the pages that could not be migrated in a run, with the
+ * reason. The list is started anew in each run and removed if no page failed.
+ */
+public class DeadLetterLog implements Closeable {
+
+	private final Path path;
+
+	private final BufferedWriter writer;
+
+	private int count = 0;
+
+	public DeadLetterLog(final Path path) throws IOException {
+		this.path = path;
+
+		Files.createDirectories(path.toAbsolutePath().getParent());
+
+		writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+		writer.write("# title\turl\treason\n");
+	}
+
+	public synchronized void append(final String title, final String url, final Throwable reason)
+			throws IOException {
+		System.out.println("Warning: Could not migrate " + title + ": " + reason);
+
+		writer.write(String.join("\t", title, url, String.valueOf(reason).replaceAll("[\\t\\r\\n]+", " ")));
+		writer.write("\n");
+		writer.flush();
+
+		count++;
+	}
+
+	public synchronized int count() {
+		return count;
+	}
+
+	public Path path() {
+		return path;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		writer.close();
+
+		if (count == 0) {
+			Files.deleteIfExists(path);
+		}
+	}
+}
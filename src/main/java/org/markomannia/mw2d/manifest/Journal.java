@@ -0,0 +1,99 @@
+package org.markomannia.mw2d.manifest;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.markomannia.mw2d.manifest.util.ManifestUtils;
+
+/**
+ * Append-only journal of the pages completed in a run, written as the run
+ * progresses. A run that is resumed after it was aborted skips the pages in the
+ * journal. The lines have the columns of the page lines of the manifest,
+ * followed by the assets of the page.
+ */
+public class Journal implements Closeable {
+
+	private final Path path;
+
+	private final Map<String, JournalEntryRecord> entries = new HashMap<>();
+
+	private final BufferedWriter writer;
+
+	/**
+	 * Opens the journal at the path. If resume is set, the pages journaled so far
+	 * are read and the journal is continued, otherwise it is started anew.
+	 */
+	public Journal(final Path path, final boolean resume) throws IOException {
+		this.path = path;
+
+		Files.createDirectories(path.toAbsolutePath().getParent());
+
+		if (resume && Files.exists(path)) {
+			final byte[] content = Files.readAllBytes(path);
+			int end = content.length;
+
+			while (end > 0 && content[end - 1] != '\n') {
+				end--;
+			}
+
+			// the last line is incomplete if the run was killed while writing it, it is cut off so that the
+			// entries appended now start on a line of their own
+			if (end < content.length) {
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+					channel.truncate(end);
+				}
+			}
+
+			for (final String line : new String(content, 0, end, StandardCharsets.UTF_8).split("\n")) {
+				final String[] columns = line.split("\t", -1);
+
+				if (columns.length == 11) {
+					entries.put(columns[1], new JournalEntryRecord(ManifestUtils.parseEntry(columns),
+							ManifestUtils.splitTitles(columns[10])));
+				}
+			}
+
+			System.out.println("Resuming after " + entries.size() + " journaled pages");
+		}
+
+		writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+				resume ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Returns the journaled page with the title, or null.
+	 */
+	public JournalEntryRecord get(final String title) {
+		return entries.get(title);
+	}
+
+	/**
+	 * Appends the page and flushes the journal, so that it survives the process.
+	 */
+	public synchronized void append(final JournalEntryRecord entry) throws IOException {
+		writer.write(ManifestUtils.formatEntry(entry.entry()) + "\t" + ManifestUtils.joinTitles(entry.assets()));
+		writer.write("\n");
+		writer.flush();
+	}
+
+	/**
+	 * Closes and deletes the journal, once the run is recorded in the manifest.
+	 */
+	public void delete() throws IOException {
+		close();
+		Files.deleteIfExists(path);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		writer.close();
+	}
+}
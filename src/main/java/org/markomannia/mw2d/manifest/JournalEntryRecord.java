@@ -0,0 +1,10 @@
+package org.markomannia.mw2d.manifest;
+
+import java.util.Set;
+
+/**
+ * A page completed in the current run, with the paths of its assets relative
+ * to the output directory.
+ */
+public record JournalEntryRecord(ManifestEntryRecord entry, Set<String> assets) {
+}
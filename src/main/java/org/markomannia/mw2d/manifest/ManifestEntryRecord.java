@@ -0,0 +1,11 @@
+package org.markomannia.mw2d.manifest;
+
+import java.util.Set;
+
+/**
+ * State of a migrated page: its revision in the wiki, where it was written
+ * to, the hash of the written file, and the titles it links to.
+ */
+public record ManifestEntryRecord(String title, Integer pageId, Long revisionId, String touched, String path,
+		String category, String heading, String contentHash, Set<String> links) {
+}
@@ -0,0 +1,10 @@
+package org.markomannia.mw2d.manifest;
+
+/**
+ * Position of an article among the articles of the enumeration of the wiki,
+ * or of a redirect among the redirects, and the URL of the page. Recorded so
+ * that the manifests of the shards can be merged in the order of an unsharded
+ * run.
+ */
+public record ManifestOrderRecord(int index, String url) {
+}
@@ -0,0 +1,16 @@
+package org.markomannia.mw2d.manifest;
+
+import java.util.Map;
+
+/**
+ * State of the last migration run: the migrated pages by title, and the
+ * redirects from title to target title, followed by # and the section if the
+ * redirect points to one. The page set hash covers titles,
+ * categories and headings of all articles and the redirects, it changes when
+ * sidebar or Docusaurus configuration have to be regenerated. The order maps
+ * the titles of the articles and redirects to their position in the
+ * enumeration.
+ */
+public record ManifestRecord(String pageSetHash, Map<String, ManifestEntryRecord> entries,
+		Map<String, String> redirects, Map<String, ManifestOrderRecord> order) {
+}
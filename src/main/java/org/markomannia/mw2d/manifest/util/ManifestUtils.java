@@ -0,0 +1,171 @@
+package org.markomannia.mw2d.manifest.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.markomannia.mw2d.manifest.ManifestEntryRecord;
+import org.markomannia.mw2d.manifest.ManifestOrderRecord;
+import org.markomannia.mw2d.manifest.ManifestRecord;
+
+/**
+ * Reads and writes the manifest as a tab separated file, the first column is
+ * the kind of the line. Page titles cannot contain tabs, line breaks or |,
+ * which separates the linked titles.
+ */
+public class ManifestUtils {
+
+	private static final String PAGE_SET = "pageset";
+
+	private static final String PAGE = "page";
+
+	private static final String REDIRECT = "redirect";
+
+	private static final String ORDER = "order";
+
+	/**
+	 * Returns the manifest, or null if there is none yet.
+	 */
+	public static ManifestRecord read(final Path path) throws IOException {
+		if (!Files.exists(path)) {
+			return null;
+		}
+
+		String pageSetHash = null;
+		final Map<String, ManifestEntryRecord> entries = new LinkedHashMap<>();
+		final Map<String, String> redirects = new LinkedHashMap<>();
+		final Map<String, ManifestOrderRecord> order = new LinkedHashMap<>();
+
+		for (final String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+			if (line.isBlank() || line.startsWith("#")) {
+				continue;
+			}
+
+			final String[] columns = line.split("\t", -1);
+
+			if (columns[0].equals(PAGE_SET) && columns.length == 2) {
+				pageSetHash = columns[1];
+			} else if (columns[0].equals(REDIRECT) && columns.length == 3) {
+				redirects.put(columns[1], columns[2]);
+			} else if (columns[0].equals(ORDER) && columns.length == 4) {
+				order.put(columns[1], new ManifestOrderRecord(Integer.parseInt(columns[2]), columns[3]));
+			} else if (columns[0].equals(PAGE) && columns.length == 10) {
+				entries.put(columns[1], parseEntry(columns));
+			} else {
+				System.out.println("Warning: Skipping malformed manifest line: " + line);
+			}
+		}
+
+		return new ManifestRecord(pageSetHash, entries, redirects, order);
+	}
+
+	/**
+	 * Replaces the manifest atomically, an interrupted run keeps the previous one.
+	 */
+	public static void write(final Path path, final ManifestRecord manifest) throws IOException {
+		Files.createDirectories(path.toAbsolutePath().getParent());
+
+		final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+		try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+			writer.write("# page\ttitle\tpageId\trevisionId\ttouched\tpath\tcategory\theading\tcontentHash\tlinks\n");
+			writer.write("# redirect\ttitle\ttarget\n");
+			writer.write("# order\ttitle\tindex\turl\n");
+			writer.write(PAGE_SET + "\t" + manifest.pageSetHash() + "\n");
+
+			for (final ManifestEntryRecord entry : manifest.entries().values()) {
+				writer.write(formatEntry(entry));
+				writer.write("\n");
+			}
+
+			for (final Map.Entry<String, String> redirect : manifest.redirects().entrySet()) {
+				writer.write(String.join("\t", REDIRECT, redirect.getKey(), redirect.getValue()));
+				writer.write("\n");
+			}
+
+			for (final Map.Entry<String, ManifestOrderRecord> order : manifest.order().entrySet()) {
+				writer.write(String.join("\t", ORDER, order.getKey(), String.valueOf(order.getValue().index()),
+						order.getValue().url()));
+				writer.write("\n");
+			}
+		}
+
+		Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Formats the entry as a page line, without line break.
+	 */
+	public static String formatEntry(final ManifestEntryRecord entry) {
+		return String.join("\t", PAGE, entry.title(), toString(entry.pageId()), toString(entry.revisionId()),
+				toString(entry.touched()), entry.path(), toString(entry.category()), entry.heading(),
+				toString(entry.contentHash()), joinTitles(entry.links()));
+	}
+
+	/**
+	 * Parses the first ten columns of a page line, further columns are ignored.
+	 */
+	public static ManifestEntryRecord parseEntry(final String[] columns) {
+		return new ManifestEntryRecord(columns[1], nullableInteger(columns[2]), nullableLong(columns[3]),
+				nullable(columns[4]), columns[5], nullable(columns[6]), columns[7], nullable(columns[8]),
+				splitTitles(columns[9]));
+	}
+
+	public static String joinTitles(final Collection<String> titles) {
+		return String.join("|", titles);
+	}
+
+	public static Set<String> splitTitles(final String column) {
+		return column.isEmpty() ? Set.of() : new LinkedHashSet<>(Arrays.asList(column.split("\\|")));
+	}
+
+	/**
+	 * Hash of the content of a file, or null if it does not exist.
+	 */
+	public static String hashFile(final Path path) throws IOException {
+		return Files.exists(path) ? hash(Files.readAllBytes(path)) : null;
+	}
+
+	/**
+	 * Hash of the lines in their sorted order.
+	 */
+	public static String hashLines(final Collection<String> lines) {
+		return hash(String.join("\n", lines.stream().sorted().toList()).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String hash(final byte[] bytes) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+		} catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String nullable(final String column) {
+		return column.isEmpty() ? null : column;
+	}
+
+	private static Integer nullableInteger(final String column) {
+		return column.isEmpty() ? null : Integer.valueOf(column);
+	}
+
+	private static Long nullableLong(final String column) {
+		return column.isEmpty() ? null : Long.valueOf(column);
+	}
+
+	private static String toString(final Object value) {
+		return value == null ? "" : value.toString();
+	}
+}
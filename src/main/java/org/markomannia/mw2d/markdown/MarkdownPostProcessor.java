@@ -0,0 +1,139 @@
+package org.markomannia.mw2d.markdown;
+
+import java.util.function.UnaryOperator;
+
+import org.markomannia.mw2d.extensions.youtube.YoutubeRewriter;
+import org.markomannia.mw2d.markdown.util.MarkdownUtils;
+
+/**
+ * Post-processes the markdown of an article in a single pass over its lines,
+ * into one buffer. A line runs through all steps before the next line is read:
+ * <ol>
+ * <li>HTML tags are removed and escaped underscores are unescaped outside of
+ * code blocks (body only)</li>
+ * <li>YouTube embeds and asset links are rewritten outside of code blocks</li>
+ * <li>markers are restored, which may expand the line into several lines</li>
+ * <li>links are replaced on every line, including the lines of fenced code
+ * blocks, and MDX characters are escaped outside of fenced code blocks</li>
+ * </ol>
+ *
+ * None of the steps matches across lines, so the output is the same as
+ * applying each step to the whole document one after another. Code blocks of
+ * the body are those written by the native renderer, whose fences may be
+ * indented inside lists, the code blocks of CopyDown are hidden behind markers
+ * until they are restored.
+ */
+public class MarkdownPostProcessor {
+
+	private final StringBuilder result;
+
+	private final UnaryOperator<String> restoreMarkers;
+
+	private boolean inHtmlCodeBlock = false;
+
+	/**
+	 * Whether the body line just processed is a fence or inside a code block.
+	 */
+	private boolean codeLine = false;
+
+	private boolean inFencedCodeBlock = false;
+
+	private boolean firstLine = true;
+
+	private MarkdownPostProcessor(final int capacity, final UnaryOperator<String> restoreMarkers) {
+		this.result = new StringBuilder(capacity);
+		this.restoreMarkers = restoreMarkers;
+	}
+
+	/**
+	 * Processes the header, e.g. the frontmatter, followed by the body converted
+	 * from HTML. restoreMarkers is applied to each line and may return several
+	 * lines.
+	 */
+	public static String process(final String header, final String body, final UnaryOperator<String> restoreMarkers) {
+		final MarkdownPostProcessor processor = new MarkdownPostProcessor(header.length() + body.length() + 64,
+				restoreMarkers);
+
+		// the last line of the header continues with the first line of the body
+		final int headerEnd = header.lastIndexOf('\n') + 1;
+		int start = 0;
+
+		while (start < headerEnd) {
+			final int end = header.indexOf('\n', start);
+			processor.processLine(header.substring(start, end), false);
+			start = end + 1;
+		}
+
+		String headerTail = header.substring(headerEnd);
+		start = 0;
+
+		while (true) {
+			final int end = body.indexOf('\n', start);
+			final String line = body.substring(start, end < 0 ? body.length() : end);
+
+			final String processed = processor.processBodyLine(line);
+			processor.processLine(headerTail + processed, processor.codeLine);
+			headerTail = "";
+
+			if (end < 0) {
+				break;
+			}
+
+			start = end + 1;
+		}
+
+		// removing the HTML tags appends a line break to a body that ends with one
+		if (body.endsWith("\n")) {
+			processor.processLine("", false);
+		}
+
+		return processor.result.toString();
+	}
+
+	private String processBodyLine(final String line) {
+		if (line.stripLeading().startsWith("```")) {
+			inHtmlCodeBlock = !inHtmlCodeBlock;
+			codeLine = true;
+			return line;
+		}
+
+		codeLine = inHtmlCodeBlock;
+
+		return inHtmlCodeBlock ? line : MarkdownUtils.removeHtmlTags(line).replace("\\_", "_");
+	}
+
+	private void processLine(final String line, final boolean code) {
+		if (code) {
+			appendLine(line);
+			return;
+		}
+
+		final String withYoutube = YoutubeRewriter.rewriteYoutubeLinks(line);
+		final String withFixedAssetLinks = MarkdownUtils.fixRemainingAssetLinks(withYoutube);
+		final String restored = restoreMarkers.apply(withFixedAssetLinks);
+
+		int start = 0;
+
+		while (true) {
+			final int end = restored.indexOf('\n', start);
+
+			appendLine(restored.substring(start, end < 0 ? restored.length() : end));
+
+			if (end < 0) {
+				break;
+			}
+
+			start = end + 1;
+		}
+	}
+
+	private void appendLine(final String line) {
+		if (!firstLine) {
+			result.append('\n');
+		}
+
+		firstLine = false;
+		inFencedCodeBlock = MarkdownUtils.escapeMdxCharacters(MarkdownUtils.replaceLinks(line), inFencedCodeBlock,
+				result);
+	}
+}
@@ -0,0 +1,637 @@
+package org.markomannia.mw2d.markdown;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Elements;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.NodeTraversor;
+
+/**
+ * Renders HTML elements as GitHub flavored markdown in a single traversal of
+ * the DOM, without serializing and parsing the HTML again.
+ *
+ * Inline elements such as links, emphasis and table cells are rendered into a
+ * buffer of their own, which is wrapped and appended to the enclosing buffer
+ * when the element ends. Tables are collected row by row and written when the
+ * table ends; colspans are padded with empty cells, nested tables are
+ * flattened into the text of their cell.
+ *
+ * A renderer keeps the state of one traversal, use {@link #render(Elements)}.
+ */
+public class MarkdownRenderer implements NodeFilter {
+
+	private static final Set<String> BLOCKS = Set.of("address", "article", "aside", "blockquote", "caption",
+			"center", "dd", "div", "dl", "dt", "fieldset", "figcaption", "figure", "footer", "form", "h1", "h2", "h3",
+			"h4", "h5", "h6", "header", "main", "nav", "p", "section");
+
+	private static final Set<String> SKIPPED = Set.of("head", "link", "meta", "noscript", "script", "style",
+			"template");
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	private static final Pattern REPEATED_SPACES = Pattern.compile(" {2,}");
+
+	/**
+	 * Text at the start of a line that would be taken as the marker of a heading,
+	 * list item, block quote or setext underline.
+	 */
+	private static final Pattern BLOCK_MARKER = Pattern.compile("^(?:[#+>=-]|\\d+\\.)");
+
+	private static class ListState {
+
+		private final boolean ordered;
+
+		private final String basePrefix;
+
+		private int counter;
+
+		private ListState(final boolean ordered, final String basePrefix, final int start) {
+			this.ordered = ordered;
+			this.basePrefix = basePrefix;
+			this.counter = start - 1;
+		}
+	}
+
+	private record CellRecord(String text, int colspan) {
+	}
+
+	private static class TableState {
+
+		private final Element table;
+
+		private final List<List<CellRecord>> rows = new ArrayList<>();
+
+		private TableState(final Element table) {
+			this.table = table;
+		}
+	}
+
+	private final Deque<StringBuilder> buffers = new ArrayDeque<>();
+
+	private final Deque<ListState> lists = new ArrayDeque<>();
+
+	private final Deque<TableState> tables = new ArrayDeque<>();
+
+	private int quoteDepth = 0;
+
+	/**
+	 * Written at the start of every line of the top level buffer, the indentation
+	 * of list items and the markers of block quotes.
+	 */
+	private String prefix = "";
+
+	/**
+	 * Whether the marker of a list item was just written and its content has not
+	 * started yet.
+	 */
+	private boolean itemStart = false;
+
+	private MarkdownRenderer() {
+		buffers.push(new StringBuilder());
+	}
+
+	public static String render(final Elements elements) {
+		final MarkdownRenderer renderer = new MarkdownRenderer();
+
+		for (final Element element : elements) {
+			NodeTraversor.filter(renderer, element);
+		}
+
+		return renderer.out().toString().strip();
+	}
+
+	@Override
+	public FilterResult head(final Node node, final int depth) {
+		if (node instanceof TextNode textNode) {
+			text(textNode.getWholeText());
+			return FilterResult.CONTINUE;
+		}
+
+		if (!(node instanceof Element element)) {
+			return FilterResult.CONTINUE;
+		}
+
+		final String tag = element.normalName();
+
+		if (SKIPPED.contains(tag)) {
+			return FilterResult.SKIP_ENTIRELY;
+		}
+
+		switch (tag) {
+		case "br":
+			lineBreak();
+			return FilterResult.SKIP_ENTIRELY;
+		case "hr":
+			blockBreak();
+			write("* * *");
+			blockBreak();
+			return FilterResult.SKIP_ENTIRELY;
+		case "img":
+			image(element);
+			return FilterResult.SKIP_ENTIRELY;
+		case "pre":
+			codeBlock(element.wholeText().trim());
+			return FilterResult.SKIP_ENTIRELY;
+		case "code":
+		case "kbd":
+		case "tt":
+			inlineCode(element.wholeText());
+			return FilterResult.SKIP_ENTIRELY;
+		case "a":
+		case "b":
+		case "strong":
+		case "i":
+		case "em":
+		case "s":
+		case "del":
+		case "strike":
+			buffers.push(new StringBuilder());
+			return FilterResult.CONTINUE;
+		case "h1":
+		case "h2":
+		case "h3":
+		case "h4":
+		case "h5":
+		case "h6":
+			blockBreak();
+			if (!isInline()) {
+				write("#".repeat(tag.charAt(1) - '0') + " ");
+			}
+			return FilterResult.CONTINUE;
+		case "blockquote":
+			blockBreak();
+			if (!isInline()) {
+				quoteDepth++;
+				prefix = prefix + "> ";
+			}
+			return FilterResult.CONTINUE;
+		case "ul":
+		case "ol":
+			if (isInline()) {
+				blockBreak();
+			} else {
+				if (lists.isEmpty()) {
+					blockBreak();
+				} else {
+					newline();
+				}
+				lists.push(new ListState(tag.equals("ol"), prefix, start(element)));
+			}
+			return FilterResult.CONTINUE;
+		case "li":
+			listItem();
+			return FilterResult.CONTINUE;
+		case "table":
+			blockBreak();
+			if (!isInline()) {
+				tables.push(new TableState(element));
+			}
+			return FilterResult.CONTINUE;
+		case "tr":
+			if (ownedByCurrentTable(element)) {
+				tables.peek().rows.add(new ArrayList<>());
+			}
+			return FilterResult.CONTINUE;
+		case "td":
+		case "th":
+			if (ownedByCurrentTable(element)) {
+				buffers.push(new StringBuilder());
+			} else {
+				blockBreak();
+			}
+			return FilterResult.CONTINUE;
+		default:
+			if (BLOCKS.contains(tag)) {
+				blockBreak();
+			}
+			return FilterResult.CONTINUE;
+		}
+	}
+
+	@Override
+	public FilterResult tail(final Node node, final int depth) {
+		if (!(node instanceof Element element)) {
+			return FilterResult.CONTINUE;
+		}
+
+		final String tag = element.normalName();
+
+		switch (tag) {
+		case "a":
+			link(element, buffers.pop().toString());
+			break;
+		case "b":
+		case "strong":
+			wrap("**", buffers.pop().toString());
+			break;
+		case "i":
+		case "em":
+			wrap("_", buffers.pop().toString());
+			break;
+		case "s":
+		case "del":
+		case "strike":
+			wrap("~~", buffers.pop().toString());
+			break;
+		case "blockquote":
+			if (!isInline()) {
+				dropEmptyLine();
+				quoteDepth--;
+				prefix = prefix.substring(0, prefix.length() - 2);
+			}
+			blockBreak();
+			break;
+		case "ul":
+		case "ol":
+			if (!isInline()) {
+				prefix = lists.pop().basePrefix;
+				if (lists.isEmpty()) {
+					blockBreak();
+				}
+			}
+			break;
+		case "li":
+			if (!isInline() && !lists.isEmpty()) {
+				prefix = lists.peek().basePrefix;
+			}
+			break;
+		case "td":
+		case "th":
+			if (ownedByCurrentTable(element)) {
+				cell(element, buffers.pop().toString());
+			}
+			break;
+		case "table":
+			if (!tables.isEmpty() && tables.peek().table == element) {
+				table(tables.pop());
+			} else {
+				blockBreak();
+			}
+			break;
+		default:
+			if (BLOCKS.contains(tag)) {
+				blockBreak();
+			}
+			break;
+		}
+
+		return FilterResult.CONTINUE;
+	}
+
+	private StringBuilder out() {
+		return buffers.peek();
+	}
+
+	/**
+	 * Whether the output goes into the buffer of an inline element or a table
+	 * cell, where there are no line breaks.
+	 */
+	private boolean isInline() {
+		return buffers.size() > 1;
+	}
+
+	private boolean ownedByCurrentTable(final Element element) {
+		return !tables.isEmpty() && element.closest("table") == tables.peek().table;
+	}
+
+	private boolean atLineStart() {
+		final StringBuilder out = out();
+		return out.length() == 0 || out.charAt(out.length() - 1) == '\n';
+	}
+
+	private void write(final String text) {
+		if (text.isEmpty()) {
+			return;
+		}
+
+		if (!isInline() && atLineStart()) {
+			out().append(prefix);
+		}
+
+		out().append(text);
+		itemStart = false;
+	}
+
+	private void text(final String wholeText) {
+		String text = WHITESPACE.matcher(wholeText).replaceAll(" ");
+		final StringBuilder out = out();
+
+		if (out.length() == 0 && !isInline() || out.length() > 0
+				&& (out.charAt(out.length() - 1) == '\n' || out.charAt(out.length() - 1) == ' ')) {
+			text = text.stripLeading();
+		}
+
+		text = escape(text);
+
+		if (!isInline() && (atLineStart() || itemStart)) {
+			final Matcher marker = BLOCK_MARKER.matcher(text);
+
+			if (marker.find()) {
+				text = text.substring(0, marker.end() - 1) + "\\" + text.substring(marker.end() - 1);
+			}
+		}
+
+		write(text);
+	}
+
+	private static String escape(final String text) {
+		final StringBuilder result = new StringBuilder(text.length());
+
+		for (final char c : text.toCharArray()) {
+			if (c == '\\' || c == '*' || c == '_' || c == '`' || c == '[' || c == ']') {
+				result.append('\\');
+			}
+
+			result.append(c);
+		}
+
+		return result.toString();
+	}
+
+	private void trimTrailingSpaces() {
+		final StringBuilder out = out();
+
+		while (out.length() > 0 && out.charAt(out.length() - 1) == ' ') {
+			out.setLength(out.length() - 1);
+		}
+	}
+
+	private void newline() {
+		if (isInline()) {
+			separate();
+			return;
+		}
+
+		trimTrailingSpaces();
+
+		if (!atLineStart()) {
+			out().append('\n');
+		}
+	}
+
+	private void lineBreak() {
+		if (isInline()) {
+			separate();
+			return;
+		}
+
+		trimTrailingSpaces();
+		out().append("  \n");
+	}
+
+	/**
+	 * Separates blocks by an empty line, and by a space inline. Inside lists and
+	 * block quotes the empty line carries the markers of the quotes, so that the
+	 * next block stays inside them. The first block of a list item starts right
+	 * after the marker.
+	 */
+	private void blockBreak() {
+		if (isInline()) {
+			separate();
+			return;
+		}
+
+		if (itemStart) {
+			return;
+		}
+
+		trimTrailingSpaces();
+
+		final StringBuilder out = out();
+
+		if (out.length() == 0) {
+			return;
+		}
+
+		if (!lists.isEmpty() || quoteDepth > 0) {
+			newline();
+
+			if (!endsWithEmptyLine()) {
+				out.append(prefix.stripTrailing()).append('\n');
+			}
+			return;
+		}
+
+		while (out.length() < 2 || out.charAt(out.length() - 1) != '\n' || out.charAt(out.length() - 2) != '\n') {
+			out.append('\n');
+		}
+	}
+
+	/**
+	 * Whether the last line is empty apart from the markers of block quotes.
+	 */
+	private boolean endsWithEmptyLine() {
+		final StringBuilder out = out();
+
+		for (int i = out.length() - 2; i >= 0; i--) {
+			final char c = out.charAt(i);
+
+			if (c == '\n') {
+				return true;
+			} else if (c != '>' && c != ' ') {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Removes a trailing empty line, so that a block quote does not end with one.
+	 */
+	private void dropEmptyLine() {
+		final StringBuilder out = out();
+
+		if (out.length() > 0 && out.charAt(out.length() - 1) == '\n' && endsWithEmptyLine()) {
+			out.setLength(out.lastIndexOf("\n", out.length() - 2) + 1);
+		}
+	}
+
+	private void separate() {
+		final StringBuilder out = out();
+
+		if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+			out.append(' ');
+		}
+	}
+
+	/**
+	 * Returns the number of the first item of an ordered list, 1 unless the list
+	 * has a valid start attribute.
+	 */
+	private static int start(final Element list) {
+		try {
+			return Integer.parseInt(list.attr("start").trim());
+		} catch (final NumberFormatException e) {
+			return 1;
+		}
+	}
+
+	private void listItem() {
+		if (isInline() || lists.isEmpty()) {
+			blockBreak();
+			return;
+		}
+
+		final ListState list = lists.peek();
+		final String marker = list.ordered ? ++list.counter + ". " : "- ";
+
+		newline();
+
+		prefix = list.basePrefix;
+		write(marker);
+		prefix = list.basePrefix + " ".repeat(marker.length());
+		itemStart = true;
+	}
+
+	private void wrap(final String delimiter, final String content) {
+		if (content.isBlank()) {
+			write(content.isEmpty() ? "" : " ");
+			return;
+		}
+
+		if (Character.isWhitespace(content.charAt(0))) {
+			separate();
+		}
+
+		write(delimiter + content.strip() + delimiter);
+
+		if (Character.isWhitespace(content.charAt(content.length() - 1))) {
+			out().append(' ');
+		}
+	}
+
+	private void link(final Element a, final String content) {
+		final String href = a.attr("href");
+
+		if (href.isEmpty() || content.isBlank()) {
+			write(content);
+			return;
+		}
+
+		if (Character.isWhitespace(content.charAt(0))) {
+			separate();
+		}
+
+		write("[" + content.strip() + "](" + href + title(a) + ")");
+
+		if (Character.isWhitespace(content.charAt(content.length() - 1))) {
+			out().append(' ');
+		}
+	}
+
+	private void image(final Element img) {
+		final String src = img.attr("src");
+
+		if (!src.isEmpty()) {
+			write("![" + img.attr("alt") + "](" + src + title(img) + ")");
+		}
+	}
+
+	private static String title(final Element element) {
+		final String title = element.attr("title");
+
+		return title.isEmpty() ? "" : " \"" + title.replace("\"", "\\\"") + "\"";
+	}
+
+	private void inlineCode(final String code) {
+		final String text = WHITESPACE.matcher(code).replaceAll(" ");
+
+		if (!text.isBlank()) {
+			write("`" + text + "`");
+		}
+	}
+
+	private void codeBlock(final String code) {
+		if (isInline()) {
+			inlineCode(code);
+			return;
+		}
+
+		blockBreak();
+		write("```");
+		out().append('\n');
+
+		for (final String line : code.split("\n", -1)) {
+			write(line);
+			out().append('\n');
+		}
+
+		write("```");
+		blockBreak();
+	}
+
+	private void cell(final Element element, final String content) {
+		final TableState table = tables.peek();
+
+		if (table.rows.isEmpty()) {
+			table.rows.add(new ArrayList<>());
+		}
+
+		int colspan = 1;
+
+		try {
+			colspan = Math.max(1, Integer.parseInt(element.attr("colspan").trim()));
+		} catch (final NumberFormatException e) {
+			// no or invalid colspan
+		}
+
+		final String text = REPEATED_SPACES.matcher(content.replace("\n", " ")).replaceAll(" ").strip()
+				.replace("|", "\\|");
+
+		table.rows.get(table.rows.size() - 1).add(new CellRecord(text, colspan));
+	}
+
+	private void table(final TableState table) {
+		final List<List<CellRecord>> rows = table.rows.stream().filter(row -> !row.isEmpty()).toList();
+
+		if (rows.isEmpty()) {
+			blockBreak();
+			return;
+		}
+
+		final int columnCount = rows.stream()
+				.mapToInt(row -> row.stream().mapToInt(CellRecord::colspan).sum()).max().orElse(1);
+
+		blockBreak();
+
+		for (int i = 0; i < rows.size(); i++) {
+			final StringBuilder line = new StringBuilder("|");
+			int columns = 0;
+
+			for (final CellRecord cell : rows.get(i)) {
+				line.append(' ').append(cell.text()).append(" |");
+
+				for (int span = 1; span < cell.colspan(); span++) {
+					line.append("  |");
+				}
+
+				columns += cell.colspan();
+			}
+
+			for (; columns < columnCount; columns++) {
+				line.append("  |");
+			}
+
+			write(line.toString());
+			out().append('\n');
+
+			// the first row is the header row
+			if (i == 0) {
+				write("|" + " --- |".repeat(columnCount));
+				out().append('\n');
+			}
+		}
+
+		blockBreak();
+	}
+}
@@ -0,0 +1,15 @@
+package org.markomannia.mw2d.markdown;
+
+public enum RendererMode {
+
+	/**
+	 * The HTML is converted by CopyDown. Tables and code blocks are converted
+	 * beforehand and replaced by markers, which are restored afterwards.
+	 */
+	COPYDOWN,
+
+	/**
+	 * The DOM is rendered in a single traversal by the MarkdownRenderer.
+	 */
+	NATIVE
+}
@@ -0,0 +1,8 @@
+package org.markomannia.mw2d.markdown;
+
+/**
+ * Replaces a literal pattern, or a regular expression if regex is set. The
+ * replacement of a regular expression can refer to its groups.
+ */
+public record RewriteRuleRecord(boolean regex, String pattern, String replacement) {
+}
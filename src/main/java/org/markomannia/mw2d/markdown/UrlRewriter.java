@@ -0,0 +1,313 @@
+package org.markomannia.mw2d.markdown;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.util.AhoCorasick;
+
+/**
+ * Rewrites text according to rewrite rules. All literal rules are applied in a
+ * single pass through an Aho–Corasick automaton, all regex rules in a second
+ * pass through one combined pattern, so the cost is linear in the length of the
+ * text however many rules there are. The rewriter is immutable apart from its
+ * hit counters and can be shared between threads.
+ */
+public class UrlRewriter {
+
+	private static final String LITERAL = "literal";
+
+	private static final String REGEX = "regex";
+
+	private static final String BUNDLED_RULES = "/rewrite-rules.tsv";
+
+	private static volatile UrlRewriter defaultRewriter;
+
+	private final List<RewriteRuleRecord> literalRules = new ArrayList<>();
+
+	private final List<RewriteRuleRecord> regexRules = new ArrayList<>();
+
+	/**
+	 * Replacements of the regex rules, with the group references translated to
+	 * the groups of the combined pattern.
+	 */
+	private final List<String> regexReplacements = new ArrayList<>();
+
+	/**
+	 * Number of the group of the combined pattern that matches rule N.
+	 */
+	private final int[] regexGroups;
+
+	private final LongAdder[] literalHits;
+
+	private final LongAdder[] regexHits;
+
+	private final AhoCorasick literals;
+
+	/**
+	 * Alternation of the regex rules, matched against the whole text so that
+	 * anchors, word boundaries and lookarounds see the context of a match.
+	 */
+	private final Pattern combinedRegex;
+
+	/**
+	 * Creates the rewriter. Throws an IllegalArgumentException if a regex rule is
+	 * not a valid pattern or contains a numbered backreference, whose number
+	 * would refer to a different group of the combined pattern.
+	 */
+	public UrlRewriter(final List<RewriteRuleRecord> rules) {
+		rules.forEach(rule -> (rule.regex() ? regexRules : literalRules).add(rule));
+
+		regexGroups = new int[regexRules.size()];
+		int group = 1;
+
+		for (int i = 0; i < regexRules.size(); i++) {
+			final RewriteRuleRecord rule = regexRules.get(i);
+
+			if (hasNumberedBackreference(rule.pattern())) {
+				throw new IllegalArgumentException("Backreferences are not supported in rewrite rules: "
+						+ rule.pattern());
+			}
+
+			final int groupCount = Pattern.compile(rule.pattern()).matcher("").groupCount();
+
+			regexGroups[i] = group;
+			regexReplacements.add(translateReplacement(rule.replacement(), group, groupCount));
+			group += groupCount + 1;
+		}
+
+		literals = new AhoCorasick(literalRules.stream().map(RewriteRuleRecord::pattern).toList());
+		combinedRegex = regexRules.isEmpty() ? null
+				: Pattern.compile(String.join("|",
+						regexRules.stream().map(rule -> "(" + rule.pattern() + ")").toList()));
+
+		literalHits = IntStream.range(0, literalRules.size()).mapToObj(i -> new LongAdder()).toArray(LongAdder[]::new);
+		regexHits = IntStream.range(0, regexRules.size()).mapToObj(i -> new LongAdder()).toArray(LongAdder[]::new);
+	}
+
+	/**
+	 * Returns the rewriter of the rules at Config.REWRITE_RULES_PATH, or of the
+	 * bundled rules if there is no such file.
+	 */
+	public static UrlRewriter defaultRewriter() {
+		if (defaultRewriter == null) {
+			synchronized (UrlRewriter.class) {
+				if (defaultRewriter == null) {
+					try {
+						final Path path = Path.of(Config.REWRITE_RULES_PATH);
+
+						if (Files.exists(path)) {
+							System.out.println("Using rewrite rules of " + path);
+
+							try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+								defaultRewriter = new UrlRewriter(readRules(reader));
+							}
+						} else {
+							try (InputStream in = UrlRewriter.class.getResourceAsStream(BUNDLED_RULES)) {
+								defaultRewriter = new UrlRewriter(
+										readRules(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))));
+							}
+						}
+					} catch (final IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+			}
+		}
+
+		return defaultRewriter;
+	}
+
+	/**
+	 * Reads rules from a tab separated file with the columns kind (literal or
+	 * regex), pattern and replacement. Empty lines and lines starting with # are
+	 * skipped.
+	 */
+	public static List<RewriteRuleRecord> readRules(final BufferedReader reader) throws IOException {
+		final List<RewriteRuleRecord> result = new ArrayList<>();
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+			if (line.isBlank() || line.startsWith("#")) {
+				continue;
+			}
+
+			final String[] columns = line.split("\t", -1);
+
+			if ((columns[0].equals(LITERAL) || columns[0].equals(REGEX)) && (columns.length == 2 || columns.length == 3)
+					&& !columns[1].isEmpty()) {
+				result.add(new RewriteRuleRecord(columns[0].equals(REGEX), columns[1],
+						columns.length == 3 ? columns[2] : ""));
+			} else {
+				System.out.println("Warning: Skipping malformed rewrite rule: " + line);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns whether the pattern contains a backreference by number, such as \1.
+	 * Backreferences by name are unaffected by the combination of the patterns.
+	 */
+	private static boolean hasNumberedBackreference(final String pattern) {
+		for (int i = 0; i < pattern.length() - 1; i++) {
+			if (pattern.charAt(i) != '\\') {
+				continue;
+			}
+
+			final char next = pattern.charAt(i + 1);
+
+			if (next >= '1' && next <= '9') {
+				return true;
+			} else if (next == 'Q') {
+				final int end = pattern.indexOf("\\E", i + 2);
+				i = end < 0 ? pattern.length() : end;
+			}
+
+			i++;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Translates the references to the groups of a rule in its replacement, $0 to
+	 * $N, to the groups of the combined pattern, in which the rule is matched by
+	 * group number offset. References by name are kept. As in
+	 * Matcher.appendReplacement, a reference takes as many digits as form a
+	 * group number of the rule.
+	 */
+	private static String translateReplacement(final String replacement, final int offset, final int groupCount) {
+		final StringBuilder result = new StringBuilder();
+
+		for (int i = 0; i < replacement.length(); i++) {
+			final char c = replacement.charAt(i);
+
+			if (c == '\\' && i + 1 < replacement.length()) {
+				result.append('\\').append(replacement.charAt(++i));
+			} else if (c == '$' && i + 1 < replacement.length() && replacement.charAt(i + 1) == '{') {
+				final int end = replacement.indexOf('}', i);
+
+				if (end < 0) {
+					throw new IllegalArgumentException("Missing } in rewrite rule replacement: " + replacement);
+				}
+
+				result.append(replacement, i, end + 1);
+				i = end;
+			} else if (c == '$') {
+				if (i + 1 >= replacement.length() || !Character.isDigit(replacement.charAt(i + 1))) {
+					throw new IllegalArgumentException("Illegal group reference in rewrite rule replacement: "
+							+ replacement);
+				}
+
+				int group = replacement.charAt(++i) - '0';
+
+				while (i + 1 < replacement.length() && Character.isDigit(replacement.charAt(i + 1))
+						&& group * 10 + replacement.charAt(i + 1) - '0' <= groupCount) {
+					group = group * 10 + replacement.charAt(++i) - '0';
+				}
+
+				if (group > groupCount) {
+					throw new IllegalArgumentException("No group " + group + " in rewrite rule replacement: "
+							+ replacement);
+				}
+
+				result.append('$').append(offset + group);
+			} else {
+				// digits are escaped so that they do not extend a preceding group number
+				result.append(Character.isDigit(c) ? "\\" + c : String.valueOf(c));
+			}
+		}
+
+		return result.toString();
+	}
+
+	public String rewrite(final String text) {
+		return rewriteRegex(rewriteLiterals(text));
+	}
+
+	private String rewriteLiterals(final String text) {
+		if (literals.isEmpty()) {
+			return text;
+		}
+
+		final StringBuilder result = new StringBuilder();
+		final int[] copied = { 0 };
+
+		literals.find(text, (pattern, start, end) -> {
+			result.append(text, copied[0], start).append(literalRules.get(pattern).replacement());
+			copied[0] = end;
+			literalHits[pattern].increment();
+		});
+
+		if (copied[0] == 0) {
+			return text;
+		}
+
+		return result.append(text, copied[0], text.length()).toString();
+	}
+
+	private String rewriteRegex(final String text) {
+		if (combinedRegex == null) {
+			return text;
+		}
+
+		final Matcher matcher = combinedRegex.matcher(text);
+
+		if (!matcher.find()) {
+			return text;
+		}
+
+		final StringBuilder result = new StringBuilder();
+
+		do {
+			for (int i = 0; i < regexRules.size(); i++) {
+				if (matcher.start(regexGroups[i]) >= 0) {
+					matcher.appendReplacement(result, regexReplacements.get(i));
+					regexHits[i].increment();
+					break;
+				}
+			}
+		} while (matcher.find());
+
+		return matcher.appendTail(result).toString();
+	}
+
+	/**
+	 * Prints how often each rule was applied, the most used rules first. Rules
+	 * that were never applied are listed as well, they may be obsolete.
+	 */
+	public void printHits() {
+		final List<String> lines = new ArrayList<>();
+		final List<Long> hits = new ArrayList<>();
+
+		for (int i = 0; i < literalRules.size(); i++) {
+			lines.add(LITERAL + "\t" + literalRules.get(i).pattern());
+			hits.add(literalHits[i].sum());
+		}
+
+		for (int i = 0; i < regexRules.size(); i++) {
+			lines.add(REGEX + "\t" + regexRules.get(i).pattern());
+			hits.add(regexHits[i].sum());
+		}
+
+		System.out.println("Rewrite rule hits:");
+
+		IntStream.range(0, lines.size()).boxed().sorted(Comparator.comparing(hits::get).reversed())
+				.forEach(i -> System.out.println(String.format("%8d\t%s", hits.get(i), lines.get(i))));
+	}
+}
@@ -1,55 +1,28 @@
 package org.markomannia.mw2d.markdown.util;
 
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class MarkdownUtils {
-
-	public static String cleanMarkdown(final String markdown) {
-		final String htmlEntitiesDecoded = markdown.replace("%C3%B6", "oe").replace("%C3%BC", "ue").replace("%2C", "")
-				.replace("%27", "").replace("%C3%A4", "").replace("%C3%9F", "ss").replace("%C3%B6", "oe")
-				.replace("%C3%84", "Ä");
-
-		final String linkReplaced1 = htmlEntitiesDecoded.replace(
-				"http://www.markomannia.org/index.php?target=kvvereindetail&verein=",
-				"https://www.markomannia.org/index.php?pid=verein&id=");
-
-		final String linkReplaced2 = linkReplaced1.replace("http://www.markomannia.org/index.php?target=kvvereine",
-				"https://www.markomannia.org/index.php?pid=dachverband_vereine");
+import org.markomannia.mw2d.markdown.UrlRewriter;
 
-		final String linkReplaced3 = linkReplaced2.replace("http://www.markomannia.org", "https://www.markomannia.org");
-
-		final String linkReplaced4 = linkReplaced3.replace(
-				"https://www.markomannia.org/index.php?target=intranetchargierkalendershow",
-				"https://www.markomannia.org/index.php?pid=intranet_chargierkalender");
+public class MarkdownUtils {
 
-		final String linkReplaced5 = linkReplaced4.replace("https://www.markomannia.org/index.php?target=zimmerangebot",
-				"https://www.markomannia.org/index.php?pid=zimmer");
+	private static final Pattern HTML_TAG = Pattern.compile("<([^>]+)>");
 
-		final String linkReplaced6 = linkReplaced5.replace(
-				"https://www.markomannia.org/index.php?target=semesterhistory",
-				"https://www.markomannia.org/index.php?pid=intranet_home");
+	private static final Pattern ASSET_PATH = Pattern.compile("\\/images\\/[a-f0-9]\\/[a-f0-9]{2}\\/");
 
-		final String linkReplaced7 = linkReplaced6.replace("http://www.markomannenwiki.de/Dokumente/", "");
+	private static final Pattern FENCE_INFO = Pattern.compile("^[a-zA-Z0-9_-]*$");
 
-		final String colonFixed = linkReplaced7.replace(") :", "):");
-		
-		// Remove MediaWiki navigation links
-		final String mwNavRemoved = colonFixed
-			.replaceAll("\\[navigation\\]\\(#mw-head\\)", "")
-			.replaceAll("\\[search\\]\\(#p-search\\)", "")
-			.replace("Jump to: , ", "")
-			.replace("Jump to: ", "");
-		
-		// Note: fixMultilineInlineCode is no longer needed since we handle <pre> tags
-		// directly in ArticleWriter and preserve fenced code blocks
-		
-		// Escape MDX-problematic characters (curly braces are interpreted as JSX expressions)
-		final String mdxEscaped = escapeMdxCharacters(mwNavRemoved);
+	private static final String[] AUTOLINK_SCHEMES = { "http://", "https://", "mailto:", "ftp://" };
 
-		return mdxEscaped;
+	/**
+	 * Applies the rewrite rules, which decode umlauts in URLs, update outdated
+	 * links and remove MediaWiki navigation links. The rules do not span lines, so
+	 * this can be applied to single lines as well.
+	 */
+	public static String replaceLinks(final String markdown) {
+		return UrlRewriter.defaultRewriter().rewrite(markdown);
 	}
-	
+
 	/**
 	 * Escapes characters that are problematic in MDX (JSX in Markdown).
 	 * - { and } are interpreted as JSX expressions
@@ -64,59 +37,7 @@ public class MarkdownUtils {
 		final String[] lines = markdown.split("\n", -1);
 		
 		for (int lineIdx = 0; lineIdx < lines.length; lineIdx++) {
-			String line = lines[lineIdx];
-			
-			// Check for fenced code block markers - must be EXACTLY ``` or ~~~ at start of line
-			// (with optional language identifier after)
-			// Don't match longer sequences like ````` which are inline code
-			final String trimmedLine = line.trim();
-			boolean isFenceMarker = false;
-			if (trimmedLine.startsWith("```") && !trimmedLine.startsWith("````")) {
-				// Check if rest of line after ``` is empty or just a language identifier
-				String afterFence = trimmedLine.substring(3);
-				if (afterFence.isEmpty() || afterFence.matches("^[a-zA-Z0-9_-]*$")) {
-					isFenceMarker = true;
-				}
-			} else if (trimmedLine.startsWith("~~~") && !trimmedLine.startsWith("~~~~")) {
-				String afterFence = trimmedLine.substring(3);
-				if (afterFence.isEmpty() || afterFence.matches("^[a-zA-Z0-9_-]*$")) {
-					isFenceMarker = true;
-				}
-			}
-			
-			if (isFenceMarker) {
-				inFencedCodeBlock = !inFencedCodeBlock;
-				sb.append(line);
-			} else if (inFencedCodeBlock) {
-				// Inside fenced code block - don't escape anything
-				sb.append(line);
-			} else {
-				// Outside code block - escape { and } and ALL < characters
-				// Note: We no longer track inline code because it's too error-prone
-				// with multi-line inline code and the escapes don't hurt inside inline code
-				
-				for (int i = 0; i < line.length(); i++) {
-					char c = line.charAt(i);
-					
-					if (c == '{') {
-						sb.append("\\{");
-					} else if (c == '}') {
-						sb.append("\\}");
-					} else if (c == '<') {
-						// Check if this is a valid Markdown autolink <https://...> or <mailto:...>
-						String rest = line.substring(i);
-						if (rest.matches("^<(https?://|mailto:|ftp://)[^>]+>.*")) {
-							// Valid autolink - don't escape
-							sb.append(c);
-						} else {
-							// Escape ALL other < to prevent MDX/JSX interpretation
-							sb.append("\\<");
-						}
-					} else {
-						sb.append(c);
-					}
-				}
-			}
+			inFencedCodeBlock = escapeMdxCharacters(lines[lineIdx], inFencedCodeBlock, sb);
 			
 			if (lineIdx < lines.length - 1) {
 				sb.append("\n");
@@ -125,8 +46,104 @@ public class MarkdownUtils {
 		
 		return sb.toString();
 	}
-	
+
+	/**
+	 * Escapes a single line and appends it to sb. Returns whether the following
+	 * line is inside of a fenced code block.
+	 */
+	public static boolean escapeMdxCharacters(final String line, final boolean inFencedCodeBlock,
+			final StringBuilder sb) {
+		if (isFenceMarker(line)) {
+			sb.append(line);
+			return !inFencedCodeBlock;
+		} else if (inFencedCodeBlock) {
+			// Inside fenced code block - don't escape anything
+			sb.append(line);
+			return true;
+		}
+
+		// Outside code block - escape { and } and ALL < characters
+		// Note: We no longer track inline code because it's too error-prone
+		// with multi-line inline code and the escapes don't hurt inside inline code
+		for (int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+
+			if (c == '{') {
+				sb.append("\\{");
+			} else if (c == '}') {
+				sb.append("\\}");
+			} else if (c == '<' && isAutolink(line, i)) {
+				// Valid autolink - don't escape
+				sb.append(c);
+			} else if (c == '<') {
+				// Escape ALL other < to prevent MDX/JSX interpretation
+				sb.append("\\<");
+			} else {
+				sb.append(c);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether the line opens or closes a fenced code block - must be EXACTLY ```
+	 * or ~~~ at start of line (with optional language identifier after). Longer
+	 * sequences like ````` are inline code.
+	 */
+	private static boolean isFenceMarker(final String line) {
+		final String trimmedLine = line.trim();
+
+		if (trimmedLine.startsWith("```") && !trimmedLine.startsWith("````")
+				|| trimmedLine.startsWith("~~~") && !trimmedLine.startsWith("~~~~")) {
+			// Check if rest of line after the fence is empty or just a language identifier
+			return FENCE_INFO.matcher(trimmedLine.substring(3)).matches();
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether a valid Markdown autolink such as <https://...> or <mailto:...>
+	 * starts at the index.
+	 */
+	private static boolean isAutolink(final String line, final int index) {
+		for (final String scheme : AUTOLINK_SCHEMES) {
+			if (line.startsWith(scheme, index + 1)) {
+				final int start = index + 1 + scheme.length();
+				final int end = line.indexOf('>', start);
+
+				return end > start && !containsLineTerminator(line, end + 1);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Whether the line contains a character that . does not match in a regular
+	 * expression, from the index on.
+	 */
+	private static boolean containsLineTerminator(final String line, final int from) {
+		for (int i = from; i < line.length(); i++) {
+			final char c = line.charAt(i);
+
+			if (c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Removes the angle brackets of HTML tags, the content of the tags is kept.
+	 */
+	public static String removeHtmlTags(final String line) {
+		return HTML_TAG.matcher(line).replaceAll("$1");
+	}
+
 	public static String fixRemainingAssetLinks(final String markdown) {
-		return markdown.replaceAll("\\/images\\/[a-f0-9]\\/[a-f0-9]{2}\\/", "");
+		return ASSET_PATH.matcher(markdown).replaceAll("");
 	}
 }
@@ -0,0 +1,22 @@
+package org.markomannia.mw2d.selection;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The pages to migrate, as given on the command line. Includes and excludes
+ * are globs, or regular expressions if prefixed with re:, that have to match
+ * the whole title. Namespaces are given by ID. If no include, category or
+ * titles file is given, all pages of the namespaces are selected.
+ */
+public record PageSelectionRecord(List<String> includes, List<String> excludes, Set<Integer> namespaces,
+		List<String> categories, String titlesFile) {
+
+	public static final PageSelectionRecord ALL = new PageSelectionRecord(List.of(), List.of(), Set.of(), List.of(),
+			null);
+
+	public boolean isAll() {
+		return includes.isEmpty() && excludes.isEmpty() && namespaces.isEmpty() && categories.isEmpty()
+				&& titlesFile == null;
+	}
+}
@@ -0,0 +1,169 @@
+package org.markomannia.mw2d.selection;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.client.MediaWikiApiClient;
+
+/**
+ * Decides which pages are migrated. The includes and the excludes are each
+ * compiled into a single pattern, the titles of the titles file and of the
+ * members of the categories are looked up by hash, so a page is matched in one
+ * pass over its title however many criteria are given.
+ *
+ * A page is selected if it is in one of the namespaces, matches an include or
+ * is listed in the titles file or one of the categories, and matches no
+ * exclude. Titles are compared with underscores as spaces, regular expressions
+ * thus have to match spaces.
+ */
+public class PageSelector {
+
+	public static final PageSelector ALL = new PageSelector(PageSelectionRecord.ALL, null);
+
+	private static final String REGEX_PREFIX = "re:";
+
+	private final PageSelectionRecord selection;
+
+	private final Pattern includes;
+
+	private final Pattern excludes;
+
+	/**
+	 * Titles of the titles file and the categories, null if neither is given.
+	 */
+	private final Set<String> listedTitles;
+
+	public PageSelector(final PageSelectionRecord selection, final Set<String> listedTitles) {
+		this.selection = selection;
+		this.includes = compile(selection.includes());
+		this.excludes = compile(selection.excludes());
+
+		if (listedTitles == null) {
+			this.listedTitles = null;
+		} else {
+			this.listedTitles = new HashSet<>();
+			listedTitles.forEach(title -> this.listedTitles.add(normalize(title)));
+		}
+	}
+
+	/**
+	 * Creates the selector, reading the titles file and looking up the members of
+	 * the categories through the API.
+	 */
+	public static PageSelector create(final PageSelectionRecord selection) throws IOException {
+		if (selection.isAll()) {
+			return ALL;
+		}
+
+		Set<String> listedTitles = null;
+
+		if (selection.titlesFile() != null) {
+			listedTitles = new HashSet<>();
+
+			for (final String line : Files.readAllLines(Path.of(selection.titlesFile()), StandardCharsets.UTF_8)) {
+				if (!line.isBlank() && !line.startsWith("#")) {
+					listedTitles.add(line.strip());
+				}
+			}
+		}
+
+		for (final String category : selection.categories()) {
+			if (listedTitles == null) {
+				listedTitles = new HashSet<>();
+			}
+
+			final List<String> members = MediaWikiApiClient.streamCategoryMembers(category).toList();
+
+			System.out.println("Found " + members.size() + " pages in category " + category);
+
+			listedTitles.addAll(members);
+		}
+
+		return new PageSelector(selection, listedTitles);
+	}
+
+	private static Pattern compile(final List<String> patterns) {
+		if (patterns.isEmpty()) {
+			return null;
+		}
+
+		return Pattern.compile(
+				String.join("|", patterns.stream().map(pattern -> "(?:" + toRegex(pattern) + ")").toList()));
+	}
+
+	/**
+	 * Translates a glob, in which * matches any characters and ? a single one, to
+	 * a regular expression. Patterns prefixed with re: are taken as they are.
+	 */
+	static String toRegex(final String pattern) {
+		if (pattern.startsWith(REGEX_PREFIX)) {
+			return pattern.substring(REGEX_PREFIX.length());
+		}
+
+		final StringBuilder result = new StringBuilder();
+		int literalStart = 0;
+
+		for (int i = 0; i < pattern.length(); i++) {
+			final char c = pattern.charAt(i);
+
+			if (c == '*' || c == '?') {
+				if (i > literalStart) {
+					result.append(Pattern.quote(normalize(pattern.substring(literalStart, i))));
+				}
+
+				result.append(c == '*' ? ".*" : ".");
+				literalStart = i + 1;
+			}
+		}
+
+		if (literalStart < pattern.length()) {
+			result.append(Pattern.quote(normalize(pattern.substring(literalStart))));
+		}
+
+		return result.toString();
+	}
+
+	private static String normalize(final String title) {
+		return title.replace('_', ' ');
+	}
+
+	public boolean isAll() {
+		return selection.isAll();
+	}
+
+	/**
+	 * The namespaces to enumerate, Config.NAMESPACES whatever is selected, so
+	 * that the pages that are not selected are kept and not taken as removed.
+	 */
+	public Set<Integer> namespacesToEnumerate() {
+		return new TreeSet<>(Config.NAMESPACES);
+	}
+
+	public boolean selects(final String title, final Integer namespace) {
+		if (!selection.namespaces().isEmpty()
+				&& !selection.namespaces().contains(namespace == null ? Integer.valueOf(0) : namespace)) {
+			return false;
+		}
+
+		final String normalizedTitle = normalize(title);
+
+		if (excludes != null && excludes.matcher(normalizedTitle).matches()) {
+			return false;
+		}
+
+		if (includes == null && listedTitles == null) {
+			return true;
+		}
+
+		return includes != null && includes.matcher(normalizedTitle).matches()
+				|| listedTitles != null && listedTitles.contains(normalizedTitle);
+	}
+}
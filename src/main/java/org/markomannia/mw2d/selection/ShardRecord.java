@@ -0,0 +1,49 @@
+package org.markomannia.mw2d.selection;
+
+/**
+ * Shard index of count shards, index counting from 1. Pages are partitioned by
+ * the hash of their title, which is the same in every JVM, so that every
+ * process assigns each page to the same shard.
+ */
+public record ShardRecord(int index, int count) {
+
+	public ShardRecord {
+		if (count < 1 || index < 1 || index > count) {
+			throw new IllegalArgumentException("Invalid shard " + index + "/" + count);
+		}
+	}
+
+	/**
+	 * Parses a shard given as index/count, e.g. 2/4.
+	 */
+	public static ShardRecord parse(final String shard) {
+		final int slash = shard.indexOf('/');
+
+		try {
+			return new ShardRecord(Integer.parseInt(shard.substring(0, slash).trim()),
+					Integer.parseInt(shard.substring(slash + 1).trim()));
+		} catch (final NumberFormatException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Invalid shard " + shard + ", expected index/count");
+		}
+	}
+
+	/**
+	 * Returns whether the page with the title belongs to the shard. Titles are
+	 * compared with underscores as spaces.
+	 */
+	public boolean contains(final String title) {
+		return Math.floorMod(title.replace('_', ' ').hashCode(), count) == index - 1;
+	}
+
+	/**
+	 * Returns the path of the file of the shard for the file of an unsharded run,
+	 * e.g. .mw2d-manifest-shard-2-of-4.tsv for .mw2d-manifest.tsv.
+	 */
+	public String path(final String path) {
+		final int extension = path.lastIndexOf('.');
+		final String suffix = "-shard-" + index + "-of-" + count;
+
+		return extension > path.lastIndexOf('/') + 1 ? path.substring(0, extension) + suffix + path.substring(extension)
+				: path + suffix;
+	}
+}
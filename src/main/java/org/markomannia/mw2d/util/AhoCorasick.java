@@ -0,0 +1,171 @@
+package org.markomannia.mw2d.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Finds literal patterns in a text with an Aho–Corasick automaton, in time
+ * linear in the length of the text independent of the number of patterns.
+ *
+ * Matches are reported leftmost-longest and without overlap, which is what a
+ * single replacing pass needs: of the matches starting first, the longest one
+ * wins, and scanning continues after it.
+ */
+public class AhoCorasick {
+
+	@FunctionalInterface
+	public interface MatchHandler {
+		void onMatch(int pattern, int start, int end);
+	}
+
+	private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+
+	private final List<Integer> failures = new ArrayList<>();
+
+	private final List<Integer> depths = new ArrayList<>();
+
+	/**
+	 * Index of the longest pattern that ends in the state, -1 if there is none.
+	 */
+	private final List<Integer> outputs = new ArrayList<>();
+
+	private final List<String> patterns;
+
+	/**
+	 * Builds the automaton. Empty patterns are ignored, of duplicate patterns the
+	 * first one is reported.
+	 */
+	public AhoCorasick(final List<String> patterns) {
+		this.patterns = List.copyOf(patterns);
+
+		addState(0);
+
+		for (int i = 0; i < patterns.size(); i++) {
+			final String pattern = patterns.get(i);
+
+			if (pattern.isEmpty()) {
+				continue;
+			}
+
+			int state = 0;
+
+			for (int j = 0; j < pattern.length(); j++) {
+				final Integer next = transitions.get(state).get(pattern.charAt(j));
+
+				if (next == null) {
+					final int created = addState(j + 1);
+					transitions.get(state).put(pattern.charAt(j), created);
+					state = created;
+				} else {
+					state = next;
+				}
+			}
+
+			if (outputs.get(state) < 0) {
+				outputs.set(state, i);
+			}
+		}
+
+		// failure links in breadth-first order, so the links of shorter states are known
+		final Queue<Integer> queue = new ArrayDeque<>();
+
+		for (final int child : transitions.get(0).values()) {
+			failures.set(child, 0);
+			queue.add(child);
+		}
+
+		while (!queue.isEmpty()) {
+			final int state = queue.poll();
+
+			for (final Map.Entry<Character, Integer> transition : transitions.get(state).entrySet()) {
+				final int child = transition.getValue();
+				final int failure = next(failures.get(state), transition.getKey());
+
+				failures.set(child, failure);
+
+				if (outputs.get(child) < 0) {
+					outputs.set(child, outputs.get(failure));
+				}
+
+				queue.add(child);
+			}
+		}
+	}
+
+	private int addState(final int depth) {
+		transitions.add(new HashMap<>());
+		failures.add(0);
+		depths.add(depth);
+		outputs.add(-1);
+
+		return transitions.size() - 1;
+	}
+
+	private int next(final int state, final char c) {
+		int current = state;
+
+		while (true) {
+			final Integer next = transitions.get(current).get(c);
+
+			if (next != null) {
+				return next;
+			} else if (current == 0) {
+				return 0;
+			}
+
+			current = failures.get(current);
+		}
+	}
+
+	public String pattern(final int index) {
+		return patterns.get(index);
+	}
+
+	public boolean isEmpty() {
+		return transitions.get(0).isEmpty();
+	}
+
+	/**
+	 * Reports the leftmost-longest, non overlapping matches in the text in the
+	 * order of their position.
+	 */
+	public void find(final CharSequence text, final MatchHandler handler) {
+		int state = 0;
+		int position = 0;
+		int matchPattern = -1;
+		int matchStart = -1;
+		int matchEnd = -1;
+
+		while (position < text.length() || matchPattern >= 0) {
+			if (position < text.length()) {
+				state = next(state, text.charAt(position));
+				position++;
+
+				final int output = outputs.get(state);
+
+				if (output >= 0) {
+					final int start = position - patterns.get(output).length();
+
+					if (matchPattern < 0 || start < matchStart || start == matchStart && position > matchEnd) {
+						matchPattern = output;
+						matchStart = start;
+						matchEnd = position;
+					}
+				}
+			}
+
+			// no partial match that starts at or before the match can still complete it
+			if (matchPattern >= 0 && (position >= text.length() || position - depths.get(state) > matchStart)) {
+				handler.onMatch(matchPattern, matchStart, matchEnd);
+
+				state = 0;
+				position = matchEnd;
+				matchPattern = -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package org.markomannia.mw2d.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+public class BatchUtils {
+
+	/**
+	 * Pairs each item with the result of a lookup for its batch. Items are pulled
+	 * from the source in batches of the given size, and the lookup of a batch is
+	 * started as soon as the batch is complete, so consumers can process the items
+	 * while the lookup is still running.
+	 */
+	public static <T, R> Iterator<Map.Entry<T, CompletableFuture<R>>> batched(final Iterator<T> source,
+			final int size, final Function<List<T>, CompletableFuture<R>> lookup) {
+		return new Iterator<>() {
+
+			private final Deque<Map.Entry<T, CompletableFuture<R>>> buffer = new ArrayDeque<>();
+
+			@Override
+			public boolean hasNext() {
+				if (buffer.isEmpty() && source.hasNext()) {
+					final List<T> batch = new ArrayList<>(size);
+
+					while (batch.size() < size && source.hasNext()) {
+						batch.add(source.next());
+					}
+
+					final CompletableFuture<R> result = lookup.apply(batch);
+
+					for (final T item : batch) {
+						buffer.add(Map.entry(item, result));
+					}
+				}
+
+				return !buffer.isEmpty();
+			}
+
+			@Override
+			public Map.Entry<T, CompletableFuture<R>> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				return buffer.poll();
+			}
+		};
+	}
+}
@@ -0,0 +1,105 @@
+package org.markomannia.mw2d.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+public class ConcurrencyUtils {
+
+	@FunctionalInterface
+	public interface Task<T, R> {
+		R apply(T item) throws IOException, InterruptedException;
+	}
+
+	/**
+	 * Applies the task to all items with at most concurrency tasks running at the
+	 * same time. Items are pulled from the iterable only when a worker is free, so
+	 * lazy iterables are consumed while earlier items are still being processed.
+	 *
+	 * The results are returned in the order of the items, independent of the
+	 * order in which the tasks finish. With a concurrency of 1 the tasks run
+	 * sequentially on the calling thread.
+	 */
+	public static <T, R> List<R> mapConcurrently(final Iterable<T> items, final int concurrency,
+			final Task<T, R> task) throws IOException, InterruptedException {
+		final List<R> result = new ArrayList<>();
+
+		if (concurrency <= 1) {
+			for (final T item : items) {
+				result.add(task.apply(item));
+			}
+
+			return result;
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		final Semaphore permits = new Semaphore(concurrency);
+		final List<Future<R>> futures = new ArrayList<>();
+
+		try {
+			for (final T item : items) {
+				permits.acquire();
+
+				futures.add(executor.submit(() -> {
+					try {
+						return task.apply(item);
+					} finally {
+						permits.release();
+					}
+				}));
+			}
+
+			for (final Future<R> future : futures) {
+				result.add(await(future));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Waits for the future and rethrows its failure with the checked exception
+	 * types of the blocking API.
+	 */
+	public static <R> R await(final Future<R> future) throws IOException, InterruptedException {
+		try {
+			return future.get();
+		} catch (final ExecutionException e) {
+			final Throwable cause = unwrap(e);
+
+			if (cause instanceof IOException ioException) {
+				throw ioException;
+			} else if (cause instanceof InterruptedException interruptedException) {
+				throw interruptedException;
+			} else if (cause instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			} else if (cause instanceof Error error) {
+				throw error;
+			} else {
+				throw new RuntimeException(cause);
+			}
+		}
+	}
+
+	/**
+	 * Returns the cause of nested CompletionExceptions and ExecutionExceptions.
+	 */
+	public static Throwable unwrap(final Throwable exception) {
+		Throwable result = exception;
+
+		while ((result instanceof CompletionException || result instanceof ExecutionException)
+				&& result.getCause() != null) {
+			result = result.getCause();
+		}
+
+		return result;
+	}
+}
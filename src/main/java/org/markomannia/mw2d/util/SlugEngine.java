@@ -0,0 +1,207 @@
+package org.markomannia.mw2d.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns titles and file names into names that are safe for file paths and
+ * Docusaurus sidebar ids, in a single pass over the characters with a
+ * translation table. Results are cached, and names that two different inputs
+ * are turned into are reported, as the later output would overwrite the
+ * earlier one.
+ *
+ * Inputs that only differ in spaces and underscores are the same page or file
+ * in MediaWiki, they are not reported.
+ */
+public class SlugEngine {
+
+	public enum Profile {
+
+		/**
+		 * Colons and backslashes become subdirectories, extensions have 2 to 4
+		 * characters.
+		 */
+		PATH,
+
+		/**
+		 * No subdirectories, all separators become underscores, extensions have 2 to
+		 * 5 characters.
+		 */
+		ASSET
+	}
+
+	private static final String[] PATH_TABLE = translationTable(Profile.PATH);
+
+	private static final String[] ASSET_TABLE = translationTable(Profile.ASSET);
+
+	/**
+	 * Paths of the articles, by title.
+	 */
+	public static final SlugEngine ARTICLES = new SlugEngine(Profile.PATH, "title");
+
+	/**
+	 * File names of the assets, by the decoded file name of their URL.
+	 */
+	public static final SlugEngine ASSETS = new SlugEngine(Profile.ASSET, "asset");
+
+	/**
+	 * Any other file names, e.g. of category directories, without collision
+	 * detection.
+	 */
+	public static final SlugEngine FILE_NAMES = new SlugEngine(Profile.PATH, null);
+
+	private final String[] table;
+
+	private final int maxExtensionLength;
+
+	/**
+	 * What the inputs are in collision warnings, null if collisions are not
+	 * detected.
+	 */
+	private final String kind;
+
+	private final Map<String, String> slugs = new ConcurrentHashMap<>();
+
+	private final Map<String, String> inputsBySlugs = new ConcurrentHashMap<>();
+
+	public SlugEngine(final Profile profile, final String kind) {
+		this.table = profile == Profile.PATH ? PATH_TABLE : ASSET_TABLE;
+		this.maxExtensionLength = profile == Profile.PATH ? 4 : 5;
+		this.kind = kind;
+	}
+
+	private static String[] translationTable(final Profile profile) {
+		final String[] table = new String[256];
+
+		// Remove problematic special characters that cause issues in file paths and Docusaurus sidebar IDs
+		for (final char c : "'´,!?Â\"<>*".toCharArray()) {
+			table[c] = "";
+		}
+
+		for (final char c : "&.|() ".toCharArray()) {
+			table[c] = "_";
+		}
+
+		// Doppelpunkt und Backslash -> Subpfad (z.B. "Magento_2_Extensions:Custom_SMTP" -> "Magento_2_Extensions/Custom_SMTP"),
+		// keine Subpfade für Assets
+		final String separator = profile == Profile.PATH ? "/" : "_";
+		table[':'] = separator;
+		table['\\'] = separator;
+
+		if (profile == Profile.ASSET) {
+			table['/'] = "_";
+		}
+
+		// German chars
+		table['ü'] = "ue";
+		table['ä'] = "ae";
+		table['ö'] = "oe";
+		table['Ü'] = "Ue";
+		table['Ä'] = "Ae";
+		table['Ö'] = "Oe";
+		table['ß'] = "ss";
+
+		return table;
+	}
+
+	public String slug(final String input) {
+		final String cached = slugs.get(input);
+
+		if (cached != null) {
+			return cached;
+		}
+
+		final String slug = slugs.computeIfAbsent(input, this::translate);
+
+		if (kind != null) {
+			detectCollision(input, slug);
+		}
+
+		return slug;
+	}
+
+	private void detectCollision(final String input, final String slug) {
+		final String normalizedInput = input.replace('_', ' ');
+		final String previous = inputsBySlugs.putIfAbsent(slug, normalizedInput);
+
+		if (previous != null && !previous.equals(normalizedInput)) {
+			System.out.println("Warning: The " + kind + "s \"" + previous + "\" and \"" + normalizedInput
+					+ "\" are both written to " + slug + ", one overwrites the other");
+		}
+	}
+
+	private String translate(final String input) {
+		// Only treat as extension if there's content after the dot and it looks like a file extension
+		final int extensionStart = extensionStart(input);
+		final StringBuilder result = new StringBuilder(input.length() + 8);
+		final StringBuilder segment = new StringBuilder();
+
+		for (int i = 0; i < extensionStart; i++) {
+			final char c = input.charAt(i);
+			final String replacement = c < table.length ? table[c] : null;
+
+			if (replacement == null) {
+				append(c, segment, result);
+			} else {
+				for (int j = 0; j < replacement.length(); j++) {
+					append(replacement.charAt(j), segment, result);
+				}
+			}
+		}
+
+		endSegment(segment, result);
+
+		return result.append(input, extensionStart, input.length()).toString();
+	}
+
+	/**
+	 * Appends the character to the current path segment. Multiple underscores
+	 * become one, and underscores at the start and end of a segment as well as
+	 * empty segments are removed.
+	 */
+	private static void append(final char c, final StringBuilder segment, final StringBuilder result) {
+		if (c == '/') {
+			endSegment(segment, result);
+		} else if (c != '_' || segment.length() > 0 && segment.charAt(segment.length() - 1) != '_') {
+			segment.append(c);
+		}
+	}
+
+	private static void endSegment(final StringBuilder segment, final StringBuilder result) {
+		if (segment.length() > 0 && segment.charAt(segment.length() - 1) == '_') {
+			segment.setLength(segment.length() - 1);
+		}
+
+		if (segment.length() > 0) {
+			if (result.length() > 0) {
+				result.append('/');
+			}
+
+			result.append(segment);
+			segment.setLength(0);
+		}
+	}
+
+	/**
+	 * Returns the index of the dot of a file extension of 2 to maxExtensionLength
+	 * letters or digits, or the length of the input if it has none.
+	 */
+	private int extensionStart(final String input) {
+		final int lastDotIndex = input.lastIndexOf('.');
+		final int extensionLength = input.length() - lastDotIndex - 1;
+
+		if (lastDotIndex <= 0 || extensionLength < 2 || extensionLength > maxExtensionLength) {
+			return input.length();
+		}
+
+		for (int i = lastDotIndex + 1; i < input.length(); i++) {
+			final char c = input.charAt(i);
+
+			if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9')) {
+				return input.length();
+			}
+		}
+
+		return lastDotIndex;
+	}
+}
@@ -0,0 +1,99 @@
+package org.markomannia.mw2d;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.markomannia.mw2d.articles.ArticleRecord;
+import org.markomannia.mw2d.articles.RedirectRecord;
+import org.markomannia.mw2d.client.MediaWikiCategoryRecord;
+import org.markomannia.mw2d.client.MediaWikiPageRecord;
+import org.markomannia.mw2d.manifest.ManifestRecord;
+import org.markomannia.mw2d.selection.ShardRecord;
+
+public class MainTest {
+
+	private static final MediaWikiCategoryRecord CATEGORY = new MediaWikiCategoryRecord("Connectors", "Connectors", 0);
+
+	@Test
+	public void testMergedShardsMatchUnshardedRun() throws Exception {
+		// enumerated by namespace, which is not the order of the titles
+		final Map<String, MediaWikiPageRecord> pagesByTitles = new LinkedHashMap<>();
+
+		for (final MediaWikiPageRecord page : List.of(page(1, "Main Page", 0, false), page(2, "Zeta", 0, false),
+				page(3, "Project:About", 4, false), page(4, "Help:Contents", 12, false),
+				page(5, "Help:Export", 12, false))) {
+			pagesByTitles.put(page.title(), page);
+		}
+
+		final List<MediaWikiPageRecord> redirectPages = List.of(page(6, "Zeta old", 0, true),
+				page(7, "Project:Start", 4, true), page(8, "Help:Old", 12, true));
+		final Map<String, String> redirectTargets = new LinkedHashMap<>();
+		redirectTargets.put("Zeta old", "Zeta");
+		redirectTargets.put("Project:Start", "Main Page");
+		redirectTargets.put("Help:Old", "Help:Contents#Usage");
+
+		final ManifestRecord unsharded = manifest(pagesByTitles, redirectPages, redirectTargets, null);
+		final ManifestRecord first = manifest(pagesByTitles, redirectPages, redirectTargets, new ShardRecord(1, 2));
+		final ManifestRecord second = manifest(pagesByTitles, redirectPages, redirectTargets, new ShardRecord(2, 2));
+
+		assertFalse(first.entries().isEmpty());
+		assertFalse(second.entries().isEmpty());
+
+		final ManifestRecord merged = Main.mergeManifests(List.of(second, first));
+
+		assertEquals(unsharded.pageSetHash(), merged.pageSetHash());
+		assertEquals(new ArrayList<>(unsharded.entries().entrySet()), new ArrayList<>(merged.entries().entrySet()));
+		assertEquals(new ArrayList<>(unsharded.redirects().entrySet()),
+				new ArrayList<>(merged.redirects().entrySet()));
+		assertEquals(unsharded.order(), merged.order());
+		assertEquals(pagesByTitles.values().stream().map(MediaWikiPageRecord::url).toList(),
+				Main.recordedArticles(merged).stream().map(ArticleRecord::fromUrl).toList());
+	}
+
+	private static MediaWikiPageRecord page(final int pageId, final String title, final int namespace,
+			final boolean isRedirect) {
+		return new MediaWikiPageRecord("https://wiki.example.com/index.php?curid=" + pageId, isRedirect, title, pageId,
+				namespace, "2024-05-01T10:00:00Z", 100L + pageId);
+	}
+
+	/**
+	 * Returns the manifest that a run of the shard, or an unsharded run, records
+	 * for the enumerated pages.
+	 */
+	private static ManifestRecord manifest(final Map<String, MediaWikiPageRecord> pagesByTitles,
+			final List<MediaWikiPageRecord> redirectPages, final Map<String, String> redirectTargets,
+			final ShardRecord shard) throws Exception {
+		final List<ArticleRecord> articles = new ArrayList<>();
+		final Map<String, ArticleRecord> articlesByTitles = new LinkedHashMap<>();
+
+		pagesByTitles.forEach((title, page) -> {
+			if (shard == null || shard.contains(title)) {
+				final ArticleRecord article = new ArticleRecord(title, page.url(), title, CATEGORY, null, List.of(),
+						Set.of());
+
+				articles.add(article);
+				articlesByTitles.put(title, article);
+			}
+		});
+
+		final Map<String, RedirectRecord> redirects = new LinkedHashMap<>();
+
+		redirectTargets.forEach((title, target) -> {
+			final String[] parts = target.split("#", 2);
+
+			if (articlesByTitles.containsKey(parts[0])) {
+				redirects.put(title, new RedirectRecord(articlesByTitles.get(parts[0]), parts.length > 1 ? parts[1] : null));
+			}
+		});
+
+		return Main.createManifest(Main.pageSetHash(articles, redirects), articles, redirects, pagesByTitles,
+				Main.enumerationOrder(pagesByTitles, redirectPages, redirectTargets), Map.of(), Set.of(), null);
+	}
+}
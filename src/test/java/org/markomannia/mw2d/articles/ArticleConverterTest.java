@@ -0,0 +1,88 @@
+package org.markomannia.mw2d.articles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+import org.markomannia.mw2d.client.MediaWikiCategoryRecord;
+import org.markomannia.mw2d.markdown.RendererMode;
+
+public class ArticleConverterTest {
+
+	private final ArticleConverter converter = new ArticleConverter(RendererMode.COPYDOWN);
+
+	private static ArticleRecord article(final int i) {
+		final String html = "<div class=\"mw-parser-output\"><p>Article " + i + "</p><pre>code " + i
+				+ "</pre><table><tr><th>Key</th></tr><tr><td>value " + i + "</td></tr></table></div>";
+
+		return new ArticleRecord("Article " + i, "https://example.com/wiki/Article_" + i, "Article " + i,
+				new MediaWikiCategoryRecord("General", "General", 0),
+				Jsoup.parse(html).select(".mw-parser-output"), List.of(), Set.of());
+	}
+
+	@Test
+	public void testConvert() {
+		final String markdown = converter.convert(article(1)).markdown();
+
+		assertTrue(markdown.contains("```\ncode 1\n```"));
+		assertTrue(markdown.contains("| value 1 |"));
+	}
+
+	@Test
+	public void testConvertNative() {
+		final String markdown = new ArticleConverter(RendererMode.NATIVE).convert(article(1)).markdown();
+
+		assertTrue(markdown.contains("# Article 1\n\nArticle 1\n\n```\ncode 1\n```"));
+		assertTrue(markdown.contains("| Key |\n| --- |\n| value 1 |"));
+	}
+
+	@Test
+	public void testCodeBlocksAreKeptInBothModes() {
+		final String html = "<div class=\"mw-parser-output\"><ul><li>Run:<pre>echo &lt;b&gt;hi&lt;/b&gt; a\\_b</pre></li>"
+				+ "</ul><pre>see https://youtu.be/x a\\_b</pre></div>";
+		final ArticleRecord article = new ArticleRecord("Code", "https://example.com/wiki/Code", "Code", null,
+				Jsoup.parse(html).select(".mw-parser-output"), List.of(), Set.of());
+
+		for (final RendererMode mode : RendererMode.values()) {
+			final List<String> lines = new ArticleConverter(mode).convert(article).markdown().lines()
+					.map(String::strip).toList();
+
+			assertTrue(lines.contains("echo <b>hi</b> a\\_b"), mode.name());
+			assertTrue(lines.contains("see https://youtu.be/x a\\_b"), mode.name());
+		}
+	}
+
+	@Test
+	public void testConcurrentConversionsDoNotInterfere() throws Exception {
+		final List<String> expected = new ArrayList<>();
+
+		for (int i = 0; i < 50; i++) {
+			expected.add(converter.convert(article(i)).markdown());
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		try {
+			final List<Future<String>> futures = new ArrayList<>();
+
+			for (int i = 0; i < 50; i++) {
+				final int index = i;
+				futures.add(executor.submit(() -> converter.convert(article(index)).markdown()));
+			}
+
+			for (int i = 0; i < 50; i++) {
+				assertEquals(expected.get(i), futures.get(i).get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
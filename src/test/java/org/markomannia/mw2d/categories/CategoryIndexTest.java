@@ -0,0 +1,48 @@
+package org.markomannia.mw2d.categories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.markomannia.mw2d.client.MediaWikiCategoryRecord;
+
+public class CategoryIndexTest {
+
+	@Test
+	public void testPrimaryAndIgnoreCase() {
+		final CategoryIndex index = new CategoryIndex(
+				List.of(new MediaWikiCategoryRecord("Connectors", "Connectors", 1),
+						new MediaWikiCategoryRecord("Feed Wizard", "Feed Wizard", 1)),
+				List.of());
+
+		assertEquals("Connectors", index.primary(List.of("Unknown", "Feed Wizard", "Connectors")).text());
+		assertNull(index.primary(List.of("Unknown")));
+		assertEquals("Feed Wizard", index.findIgnoreCase("feed wizard").text());
+	}
+
+	@Test
+	public void testInferFromTitle() {
+		final CategoryIndex index = new CategoryIndex(List.of(),
+				List.of(new CategoryRuleRecord("Magento 2 Extensions", "Magento 2 Extensions"),
+						new CategoryRuleRecord("Magento", "Magento"), new CategoryRuleRecord("Magento/Old", "Archive"),
+						new CategoryRuleRecord("FTP", "General Information")));
+
+		assertEquals("Magento 2 Extensions", index.inferFromTitle("Magento_2_Extensions/Order_Export"));
+		assertEquals("Magento", index.inferFromTitle("Magento:Setup"));
+		assertEquals("Archive", index.inferFromTitle("Magento/Old/Setup"));
+		assertEquals("General Information", index.inferFromTitle("FTP/Upload"));
+		assertNull(index.inferFromTitle("FTP Upload"));
+		assertNull(index.inferFromTitle("Magento 2"));
+		assertNull(index.inferFromTitle(null));
+	}
+
+	@Test
+	public void testBundledRules() {
+		final CategoryIndex index = new CategoryIndex(List.of());
+
+		assertEquals("Troubleshooting", index.inferFromTitle("Error/Cron"));
+		assertEquals("General Information", index.inferFromTitle("AOE_Scheduler:Setup"));
+	}
+}
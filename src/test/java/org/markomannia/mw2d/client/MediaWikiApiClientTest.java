@@ -0,0 +1,23 @@
+package org.markomannia.mw2d.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class MediaWikiApiClientTest {
+
+	@Test
+	public void testCollapseRedirectsKeepsLastSection() {
+		final Map<String, String> redirects = Map.of("Old", "Middle#Setup", "Middle", "Target#Usage", "Plain",
+				"Target", "Loop", "Loop#Top");
+
+		assertEquals("Target#Usage", MediaWikiApiClient.collapseRedirects("Old", redirects));
+		assertEquals("Target#Usage", MediaWikiApiClient.collapseRedirects("Middle", redirects));
+		assertEquals("Target", MediaWikiApiClient.collapseRedirects("Plain", redirects));
+		assertNull(MediaWikiApiClient.collapseRedirects("Target", redirects));
+		assertNull(MediaWikiApiClient.collapseRedirects("Loop", redirects));
+	}
+}
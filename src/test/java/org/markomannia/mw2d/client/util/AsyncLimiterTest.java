@@ -0,0 +1,38 @@
+package org.markomannia.mw2d.client.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+public class AsyncLimiterTest {
+
+	@Test
+	public void testPermitIsHeldUntilBodyIsRead() throws Exception {
+		final AsyncLimiter limiter = new AsyncLimiter(1);
+		final Runnable permit = limiter.acquire().join();
+
+		final CompletableFuture<Runnable> queued = limiter.acquire();
+		assertFalse(queued.isDone());
+
+		try (InputStream body = new ReleasingInputStream(new ByteArrayInputStream(new byte[3]), e -> permit.run())) {
+			body.read(new byte[2]);
+			assertFalse(queued.isDone());
+
+			body.readAllBytes();
+			assertTrue(queued.isDone());
+		}
+
+		// the permit was released once although the body was also closed
+		assertEquals(1, limiter.inFlight());
+
+		queued.join().run();
+		queued.join().run();
+		assertEquals(0, limiter.inFlight());
+	}
+}
@@ -0,0 +1,69 @@
+package org.markomannia.mw2d.client.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class ExponentialBackoffRetryPolicyTest {
+
+	private final RetryPolicy policy = new ExponentialBackoffRetryPolicy(4, Duration.ofMillis(100),
+			Duration.ofSeconds(1), Duration.ofMinutes(1),
+			(statusCode, headers) -> headers.firstValue("MediaWiki-API-Error").map("maxlag"::equals).orElse(false));
+
+	private static HttpHeaders headers(final Map<String, List<String>> values) {
+		return HttpHeaders.of(values, (name, value) -> true);
+	}
+
+	@Test
+	public void testRetriesIoExceptionsWithBackoff() throws Exception {
+		final Duration delay = policy.retryDelay(3, null, null, new IOException());
+
+		assertNotNull(delay);
+		assertTrue(delay.toMillis() <= 400);
+	}
+
+	@Test
+	public void testRetriesServerErrors() throws Exception {
+		assertNotNull(policy.retryDelay(1, 503, headers(Map.of()), null));
+		assertNotNull(policy.retryDelay(1, 429, headers(Map.of()), null));
+		assertNull(policy.retryDelay(1, 404, headers(Map.of()), null));
+		assertNull(policy.retryDelay(1, 200, headers(Map.of()), null));
+	}
+
+	@Test
+	public void testHonoursRetryAfter() throws Exception {
+		assertEquals(Duration.ofSeconds(7), policy.retryDelay(1, 503, headers(Map.of("Retry-After", List.of("7"))), null));
+		assertNull(policy.retryDelay(1, 503, headers(Map.of("Retry-After", List.of("3600"))), null));
+	}
+
+	@Test
+	public void testStopsAfterMaxAttempts() throws Exception {
+		assertNull(policy.retryDelay(4, 503, headers(Map.of()), null));
+		assertNull(policy.retryDelay(4, null, null, new IOException()));
+	}
+
+	@Test
+	public void testClassifiesFailures() throws Exception {
+		assertTrue(policy.isFailure(null, null, new IOException()));
+		assertTrue(policy.isFailure(502, headers(Map.of()), null));
+		assertTrue(policy.isFailure(200, headers(Map.of("MediaWiki-API-Error", List.of("maxlag"))), null));
+		assertFalse(policy.isFailure(404, headers(Map.of()), null));
+		assertFalse(policy.isFailure(200, headers(Map.of()), null));
+	}
+
+	@Test
+	public void testBoundsWaitingForOpenCircuit() throws Exception {
+		assertNotNull(policy.retryDelay(1, null, null, new CircuitOpenException("example.org")));
+		assertNull(policy.retryDelay(4, null, null, new CircuitOpenException("example.org")));
+	}
+}
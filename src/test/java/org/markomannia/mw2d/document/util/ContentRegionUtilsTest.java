@@ -0,0 +1,64 @@
+package org.markomannia.mw2d.document.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+public class ContentRegionUtilsTest {
+
+	private static final String BODY_CONTENT = "<div id=\"bodyContent\" class=\"vector-body\">"
+			+ "<div id=\"mw-content-text\"><div class=\"mw-parser-output\"><p>Text</p><!-- <div> -->"
+			+ "<script>document.write('<div>');</script><DIV>nested</DIV></div></div>"
+			+ "<div id=\"catlinks\"></div></div>";
+
+	@Test
+	public void testExtractContentRegion() {
+		final String html = "<html><head><script>var x = '<div>';</script></head><body><div id=\"mw-navigation\">"
+				+ "<div>nav</div></div><div id=\"content\"><h1 id=\"firstHeading\" class=\"firstHeading\">"
+				+ "<span>Order Export</span></h1>" + BODY_CONTENT + "<div id=\"footer\"></div></div></body></html>";
+
+		assertEquals("<h1 id=\"firstHeading\" class=\"firstHeading\"><span>Order Export</span></h1>" + BODY_CONTENT,
+				ContentRegionUtils.extractContentRegion(html));
+	}
+
+	@Test
+	public void testMissingOrUnbalancedRegion() {
+		assertNull(ContentRegionUtils.extractContentRegion("<h1 id=\"firstHeading\">Title</h1><div>no content</div>"));
+		assertNull(ContentRegionUtils
+				.extractContentRegion("<h1 id=\"firstHeading\">Title</h1><div id=\"bodyContent\"><div>truncated"));
+	}
+
+	@Test
+	public void testStopsReadingAfterContentRegion() throws Exception {
+		final Reader reader = new StringReader("<h1 id=\"firstHeading\">Title</h1>" + BODY_CONTENT + "<footer>");
+
+		assertEquals("<h1 id=\"firstHeading\">Title</h1>" + BODY_CONTENT,
+				ContentRegionUtils.extractContentRegion(reader));
+		assertEquals('<', reader.read());
+	}
+
+	@Test
+	public void testIdAttributeQuoting() {
+		final String content = "<div id=bodyContent><p>Text</p></div>";
+
+		assertEquals("<h1 class=firstHeading id='firstHeading'>Title</h1>" + content, ContentRegionUtils
+				.extractContentRegion("<div id=content><h1 class=firstHeading id='firstHeading'>Title</h1>" + content));
+		assertEquals("<H1 ID = \"firstHeading\">Title</H1>" + content,
+				ContentRegionUtils.extractContentRegion("<H1 ID = \"firstHeading\">Title</H1>" + content));
+		assertNull(ContentRegionUtils
+				.extractContentRegion("<h1 data-id=\"firstHeading\">Title</h1><div id=\"bodyContentX\"></div>"));
+	}
+
+	@Test
+	public void testScannedHtmlIsKept() throws Exception {
+		final String html = "<html><body><h1 id=\"firstHeading\">Title</h1><div>no content</div></body></html>";
+		final StringBuilder scanned = new StringBuilder();
+
+		assertNull(ContentRegionUtils.extractContentRegion(new StringReader(html), scanned));
+		assertEquals(html, scanned.toString());
+	}
+}
@@ -0,0 +1,40 @@
+package org.markomannia.mw2d.document.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+import org.junit.jupiter.api.Test;
+import org.markomannia.mw2d.document.DocumentProcessor;
+
+public class DocumentUtilsTest {
+
+	@Test
+	public void testPreprocess() {
+		final Document document = Jsoup.parse("<div id=\"bodyContent\"><div class=\"mw-parser-output\">"
+				+ "<div id=\"toc\">Contents</div>"
+				+ "<p><a class=\"image\" href=\"/wiki/File:Logo.png\"><img src=\"/images/a/ab/Logo.png\"></a>"
+				+ "<a href=\"/index.php?title=Order_Export\">export</a>"
+				+ "<a href=\"/index.php?title=Missing_Page#Setup\">missing</a>"
+				+ "<a href=\"/wiki/Category:Connectors\">connectors</a>"
+				+ "<a href=\"/images/3/35/Manual.pdf\">manual</a><sup><a href=\"/wiki/File:License\">L</a></sup></p>"
+				+ "<pre><span class=\"re0\">$order</span>-&gt;save();</pre>"
+				+ "</div><div id=\"catlinks\">Categories</div></div>", "https://example.com/");
+
+		final Elements elements = document.select("#bodyContent");
+		final DocumentProcessor.Pass pass = DocumentUtils.preprocess(elements,
+				Map.of("Order_Export", "/Order_Export"));
+
+		assertEquals("<p><a class=\"image\"><img src=\"Logo.png\"></a><a href=\"/Order_Export\">export</a>"
+				+ "<a>missing</a><a href=\"/Connectors\">connectors</a><a href=\"Manual.pdf\">manual</a><sup></sup>"
+				+ "</p><pre>$order-&gt;save();</pre>",
+				document.select(".mw-parser-output").html().replace("\n", ""));
+		assertEquals(Set.of("/images/a/ab/Logo.png", "/images/3/35/Manual.pdf"), pass.assets().keySet());
+		assertEquals("https://example.com/images/a/ab/Logo.png", pass.assets().get("/images/a/ab/Logo.png").absUrl());
+		assertEquals(Set.of("Order Export", "Missing Page", "Category:Connectors"), pass.linkedTitles());
+	}
+}
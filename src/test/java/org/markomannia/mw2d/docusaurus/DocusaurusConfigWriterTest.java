@@ -0,0 +1,15 @@
+package org.markomannia.mw2d.docusaurus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class DocusaurusConfigWriterTest {
+
+	@Test
+	public void testHeadingId() {
+		assertEquals("installation-via-composer", DocusaurusConfigWriter.headingId("Installation via Composer"));
+		assertEquals("whats-new-in-2_4", DocusaurusConfigWriter.headingId("What's new in 2_4?"));
+		assertEquals("größe--maße", DocusaurusConfigWriter.headingId("Größe & Maße"));
+	}
+}
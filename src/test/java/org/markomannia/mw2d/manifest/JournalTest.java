@@ -0,0 +1,99 @@
+package org.markomannia.mw2d.manifest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class JournalTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void testResume() throws Exception {
+		final Path path = tempDir.resolve("journal.tsv");
+		final JournalEntryRecord entry = new JournalEntryRecord(new ManifestEntryRecord("Connectors/Shopify", 7, 42L,
+				"2024-05-01T10:00:00Z", "Connectors/Shopify/index.md", "Connectors", "Shopify", "abc",
+				Set.of("Main Page")), Set.of("Connectors/Shopify/logo.png"));
+
+		try (Journal journal = new Journal(path, false)) {
+			journal.append(entry);
+		}
+
+		// a line cut off when the run was killed
+		Files.writeString(path, "page\tFTP\t1", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+		try (Journal journal = new Journal(path, true)) {
+			assertEquals(entry, journal.get("Connectors/Shopify"));
+			assertNull(journal.get("FTP"));
+		}
+
+		try (Journal journal = new Journal(path, false)) {
+			assertNull(journal.get("Connectors/Shopify"));
+		}
+
+		final Journal journal = new Journal(path, true);
+		journal.delete();
+		assertFalse(Files.exists(path));
+	}
+
+	@Test
+	public void testResumeAfterTruncatedLine() throws Exception {
+		final Path path = tempDir.resolve("journal.tsv");
+		final JournalEntryRecord first = new JournalEntryRecord(new ManifestEntryRecord("FTP", 1, 2L,
+				"2024-05-01T10:00:00Z", "FTP/index.md", null, "FTP", "abc", Set.of()), Set.of());
+		final JournalEntryRecord second = new JournalEntryRecord(new ManifestEntryRecord("SFTP", 3, 4L,
+				"2024-05-02T10:00:00Z", "SFTP/index.md", null, "SFTP", "def", Set.of("FTP")), Set.of("SFTP/key.png"));
+
+		try (Journal journal = new Journal(path, false)) {
+			journal.append(first);
+			journal.append(second);
+		}
+
+		// cut off within the assets of the second page, the line has all columns but is incomplete
+		final String content = Files.readString(path, StandardCharsets.UTF_8);
+		Files.writeString(path, content.substring(0, content.length() - 3), StandardCharsets.UTF_8);
+
+		try (Journal journal = new Journal(path, true)) {
+			assertEquals(first, journal.get("FTP"));
+			assertNull(journal.get("SFTP"));
+
+			journal.append(second);
+		}
+
+		try (Journal journal = new Journal(path, true)) {
+			assertEquals(first, journal.get("FTP"));
+			assertEquals(second, journal.get("SFTP"));
+		}
+
+		assertEquals(2, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+	}
+
+	@Test
+	public void testDeadLetters() throws Exception {
+		final Path path = tempDir.resolve("failed.tsv");
+
+		try (DeadLetterLog deadLetters = new DeadLetterLog(path)) {
+			assertEquals(0, deadLetters.count());
+		}
+
+		assertFalse(Files.exists(path));
+
+		try (DeadLetterLog deadLetters = new DeadLetterLog(path)) {
+			deadLetters.append("FTP", "https://wiki/FTP", new IllegalStateException("HTTP 500\nat FTP"));
+		}
+
+		assertTrue(Files.readString(path)
+				.contains("FTP\thttps://wiki/FTP\tjava.lang.IllegalStateException: HTTP 500 at FTP\n"));
+	}
+}
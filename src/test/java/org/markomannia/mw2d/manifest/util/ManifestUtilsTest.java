@@ -0,0 +1,56 @@
+package org.markomannia.mw2d.manifest.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.markomannia.mw2d.manifest.ManifestEntryRecord;
+import org.markomannia.mw2d.manifest.ManifestOrderRecord;
+import org.markomannia.mw2d.manifest.ManifestRecord;
+
+public class ManifestUtilsTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void testMissingManifest() throws Exception {
+		assertNull(ManifestUtils.read(tempDir.resolve("missing.tsv")));
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		final Path path = tempDir.resolve("manifest.tsv");
+
+		final ManifestEntryRecord page = new ManifestEntryRecord("Magento 2 Extensions:Order Export", 12, 3456L,
+				"2024-05-01T10:00:00Z", "Magento_2_Extensions/Order_Export/index.md", "Magento 2 Extensions",
+				"Order Export", "abc", Set.of("Main Page"));
+		final ManifestEntryRecord scraped = new ManifestEntryRecord("Main_Page", null, null, null, "index.md", null,
+				"Main Page", null, Set.of());
+
+		ManifestUtils.write(path, new ManifestRecord("hash",
+				Map.of(page.title(), page, scraped.title(), scraped), Map.of("Order Export", page.title()),
+				Map.of(page.title(), new ManifestOrderRecord(1, "https://wiki/Order_Export"), "Order Export",
+						new ManifestOrderRecord(0, "https://wiki/index.php?title=Order_Export&redirect=no"))));
+
+		final ManifestRecord manifest = ManifestUtils.read(path);
+
+		assertEquals("hash", manifest.pageSetHash());
+		assertEquals(page, manifest.entries().get(page.title()));
+		assertEquals(scraped, manifest.entries().get(scraped.title()));
+		assertEquals(Map.of("Order Export", page.title()), manifest.redirects());
+		assertEquals(new ManifestOrderRecord(1, "https://wiki/Order_Export"), manifest.order().get(page.title()));
+		assertEquals(2, manifest.order().size());
+	}
+
+	@Test
+	public void testHashLinesIgnoresOrder() {
+		assertEquals(ManifestUtils.hashLines(List.of("a", "b")), ManifestUtils.hashLines(List.of("b", "a")));
+	}
+}
@@ -0,0 +1,95 @@
+package org.markomannia.mw2d.markdown;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+import org.markomannia.mw2d.extensions.youtube.YoutubeRewriter;
+import org.markomannia.mw2d.markdown.util.MarkdownUtils;
+import org.markomannia.mw2d.markdown.util.WholeDocumentMarkdownUtils;
+
+public class MarkdownPostProcessorTest {
+
+	private static final String HEADER = "---\ntitle: \"Order {Export}\"\n---\n\n# Order {Export}\n\n";
+
+	private static final UnaryOperator<String> RESTORE_MARKERS = markdown -> markdown
+			.replace("___CODE_MARKER_0___", "\n```\nif (a < b) { c(); } /images/a/ab/x.png\n```\n")
+			.replace("___TABLE_MARKER_0___", "\n\n| <b>Key</b> | {value} |\n| --- | --- |\n");
+
+	private static final List<String> BODIES = List.of("",
+			"plain text",
+			"ends with a line break\n",
+			"Text with <b>bold</b> and <span class=\"x\">spans</span>\nand a\\_b and {braces} < 3",
+			"```\n<b>kept</b> in \\_code {x}\n```\nafter <i>code</i>",
+			"- item\n\n  ```\n  <b>kept</b> a\\_b {{#ev:youtube|enFh_JdqMHM}} /images/a/ab/x.png\n  ```\n- next",
+			"{{#ev:youtube|enFh\\_JdqMHM|100|right}} and [Aushang](/images/3/35/Kommersablauf.pdf \"Aushang\")",
+			"see http://www.markomannia.org/index.php?target=kvvereine and Jump to: , [navigation](#mw-head)"
+					+ " <https://example.com> and <mailto:a@b.c> (x) : y %C3%B6",
+			"before\n\n___CODE_MARKER_0___\n\nbetween ___TABLE_MARKER_0___ after",
+			"~~~\n<raw>\n~~~~\n<escaped>\n   ```js\n{in code}\n```\n{out}\r\n<https://a>\r");
+
+	/**
+	 * The steps as they were applied to the whole document one after another,
+	 * with the code blocks of the body hidden from all but the last step.
+	 */
+	private static String processWholeDocument(final String header, final String body) {
+		final List<String> codeLines = new ArrayList<>();
+		final String hidden = hideCodeBlocks(body, codeLines);
+
+		final String withoutHtml = WholeDocumentMarkdownUtils.removeHtmlTagsPreservingCodeBlocks(hidden)
+				.replace("\\_", "_");
+		final String withYoutube = YoutubeRewriter.rewriteYoutubeLinks(header + withoutHtml);
+		String withFixedAssetLinks = MarkdownUtils.fixRemainingAssetLinks(withYoutube);
+
+		for (int i = 0; i < codeLines.size(); i++) {
+			withFixedAssetLinks = withFixedAssetLinks.replace("@@code" + i + "@@", codeLines.get(i));
+		}
+
+		return WholeDocumentMarkdownUtils.cleanMarkdown(RESTORE_MARKERS.apply(withFixedAssetLinks));
+	}
+
+	/**
+	 * Replaces the fences and lines of code blocks, whose fences may be indented,
+	 * by placeholders.
+	 */
+	private static String hideCodeBlocks(final String body, final List<String> codeLines) {
+		final List<String> lines = new ArrayList<>();
+		boolean inCodeBlock = false;
+
+		for (final String line : body.split("\n", -1)) {
+			final boolean fence = line.stripLeading().startsWith("```");
+
+			if (fence || inCodeBlock) {
+				lines.add("@@code" + codeLines.size() + "@@");
+				codeLines.add(line);
+			} else {
+				lines.add(line);
+			}
+
+			inCodeBlock ^= fence;
+		}
+
+		return String.join("\n", lines);
+	}
+
+	@Test
+	public void testSameOutputAsWholeDocumentSteps() {
+		for (final String body : BODIES) {
+			assertEquals(processWholeDocument(HEADER, body), MarkdownPostProcessor.process(HEADER, body, RESTORE_MARKERS),
+					body);
+			assertEquals(processWholeDocument("", body), MarkdownPostProcessor.process("", body, RESTORE_MARKERS), body);
+			assertEquals(processWholeDocument("no line break ", body),
+					MarkdownPostProcessor.process("no line break ", body, RESTORE_MARKERS), body);
+		}
+	}
+
+	@Test
+	public void testProcess() {
+		assertEquals("# T\n\na_b [YouTube-Video](https://youtu.be/enFh_JdqMHM) \\{x\\}\n\n```\n<b>\n```",
+				MarkdownPostProcessor.process("# T\n\n", "a\\_b {{#ev:youtube|enFh\\_JdqMHM}} {x}\n\n```\n<b>\n```",
+						UnaryOperator.identity()));
+	}
+}
@@ -0,0 +1,72 @@
+package org.markomannia.mw2d.markdown;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+public class MarkdownRendererTest {
+
+	private static String render(final String html) {
+		return MarkdownRenderer.render(Jsoup.parse("<div class=\"mw-parser-output\">" + html + "</div>")
+				.select(".mw-parser-output"));
+	}
+
+	@Test
+	public void testHeadingsAndInline() {
+		assertEquals("## Setup\n\nRun **the** [installer](/Installer \"Installer\") with `--all` now.",
+				render("<h2><span class=\"mw-headline\">Setup</span></h2>"
+						+ "<p>Run <b>the </b><a href=\"/Installer\" title=\"Installer\">installer</a> with "
+						+ "<code>--all</code>\n now.</p>"));
+	}
+
+	@Test
+	public void testNestedLists() {
+		assertEquals("- one\n  1. two\n  2. three\n- four ![Logo](/logo.png)",
+				render("<ul><li>one<ol><li>two</li><li>three</li></ol></li>"
+						+ "<li>four <img src=\"/logo.png\" alt=\"Logo\"></li></ul>"));
+	}
+
+	@Test
+	public void testBlockMarkersAtLineStartAreEscaped() {
+		assertEquals("1\\. Step one\n\n\\# foo\n\n\\- dash\n\n\\+ plus\n\n\\> quote\n\n\\=\n\n"
+				+ "- 2\\. nested\n\nline  \n\\# after break\n\nnot 1. or # here, 1.5 and -1",
+				render("<p>1. Step one</p><p># foo</p><p>- dash</p><p>+ plus</p><p>&gt; quote</p><p>=</p>"
+						+ "<ul><li>2. nested</li></ul><p>line<br># after break</p>"
+						+ "<p>not 1. or # here, 1.5 and -1</p>"));
+	}
+
+	@Test
+	public void testOrderedListStart() {
+		assertEquals("5. five\n6. six\n\n1. one", render("<ol start=\"5\"><li>five</li><li>six</li></ol>"
+				+ "<ol start=\"x\"><li>one</li></ol>"));
+	}
+
+	@Test
+	public void testParagraphsInListItemsAndBlockQuotes() {
+		assertEquals("- first\n\n  second\n\n- next\n\n> quoted\n>\n> > inner\n>\n> again\n\nafter",
+				render("<ul><li><p>first</p><p>second</p></li><li>next</li></ul>"
+						+ "<blockquote><p>quoted</p><blockquote><p>inner</p></blockquote><p>again</p></blockquote>"
+						+ "<p>after</p>"));
+	}
+
+	@Test
+	public void testTables() {
+		assertEquals("| A | B |\n| --- | --- |\n| [x](/X) \\| y |  |\n| wide |  |\n\nafter",
+				render("<table><tr><th>A</th><th>B</th></tr><tr><td><a href=\"/X\">x</a> | y</td></tr>"
+						+ "<tr><td colspan=\"2\">wide</td></tr></table><p>after</p>"));
+	}
+
+	@Test
+	public void testNestedTableIsFlattened() {
+		assertEquals("| A |\n| --- |\n| inner 1 inner 2 |",
+				render("<table><tr><th>A</th></tr><tr><td><table><tr><td>inner 1</td><td>inner 2</td></tr>"
+						+ "</table></td></tr></table>"));
+	}
+
+	@Test
+	public void testCodeBlock() {
+		assertEquals("Code:\n\n```\nif (a < b) {\n  c();\n}\n```",
+				render("<p>Code:</p><pre>\nif (a &lt; b) {\n  c();\n}\n</pre>"));
+	}
+}
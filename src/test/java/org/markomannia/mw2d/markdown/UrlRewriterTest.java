@@ -0,0 +1,76 @@
+package org.markomannia.mw2d.markdown;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class UrlRewriterTest {
+
+	@Test
+	public void testLeftmostLongest() {
+		final UrlRewriter rewriter = new UrlRewriter(List.of(new RewriteRuleRecord(false, "bc", "1"),
+				new RewriteRuleRecord(false, "abcd", "2"), new RewriteRuleRecord(false, "abc", "3"),
+				new RewriteRuleRecord(false, "cde", "4")));
+
+		assertEquals("x2 3x 1e a", rewriter.rewrite("xabcd abcx bce a"));
+		assertEquals("x2e", rewriter.rewrite("xabcde"));
+
+		final String unchanged = "nothing to rewrite";
+		assertSame(unchanged, rewriter.rewrite(unchanged));
+	}
+
+	@Test
+	public void testBundledRules() {
+		assertEquals("[Zimmer](https://www.markomannia.org/index.php?pid=zimmer) and "
+				+ "[Verein](https://www.markomannia.org/index.php?pid=verein&id=3) (Koeln): Bruecke",
+				UrlRewriter.defaultRewriter()
+						.rewrite("[Zimmer](http://www.markomannia.org/index.php?target=zimmerangebot) and "
+								+ "[Verein](http://www.markomannia.org/index.php?target=kvvereindetail&verein=3) "
+								+ "(K%C3%B6ln) : Br%C3%BCcke"));
+		assertEquals("text", UrlRewriter.defaultRewriter().rewrite("Jump to: , [navigation](#mw-head)text"));
+	}
+
+	@Test
+	public void testRegexRules() throws Exception {
+		final List<RewriteRuleRecord> rules = UrlRewriter.readRules(new BufferedReader(new StringReader(
+				"# comment\nliteral\thttp://old.example.com/\thttps://new.example.com/\n"
+						+ "regex\thttps://new\\.example\\.com/wiki/(\\w+)\thttps://docs.example.com/$1\n"
+						+ "regex\t\\[(\\w+)\\]\\(#top\\)\n" + "malformed\n")));
+
+		assertEquals(3, rules.size());
+
+		final UrlRewriter rewriter = new UrlRewriter(rules);
+
+		assertEquals("https://docs.example.com/Page and https://new.example.com/x ",
+				rewriter.rewrite("http://old.example.com/wiki/Page and http://old.example.com/x [back](#top)"));
+	}
+
+	@Test
+	public void testRegexRulesInContext() {
+		final UrlRewriter rewriter = new UrlRewriter(List.of(new RewriteRuleRecord(true, "a(b)", "$1"),
+				new RewriteRuleRecord(true, "^# (\\w+)$", "## $1"),
+				new RewriteRuleRecord(true, "(?<=\\()(\\w+)\\.md\\b", "$1"),
+				new RewriteRuleRecord(true, "(x)(y)", "$2$1"), new RewriteRuleRecord(true, "(z)", "$10 \\$0")));
+
+		assertEquals("## Title", rewriter.rewrite("# Title"));
+		assertEquals("# Two words", rewriter.rewrite("# Two words"));
+		assertEquals("b [see](page) page.md (page.mdx)", rewriter.rewrite("ab [see](page.md) page.md (page.mdx)"));
+		assertEquals("yx z0 $0", rewriter.rewrite("xy z"));
+	}
+
+	@Test
+	public void testRejectsBackreferences() {
+		assertThrows(IllegalArgumentException.class,
+				() -> new UrlRewriter(List.of(new RewriteRuleRecord(true, "(\\w)\\1", "$1"))));
+
+		// escaped backslashes, quoted text and named backreferences are accepted
+		new UrlRewriter(List.of(new RewriteRuleRecord(true, "\\\\1", ""),
+				new RewriteRuleRecord(true, "\\Q\\1\\E", ""), new RewriteRuleRecord(true, "(?<c>\\w)\\k<c>", "${c}")));
+	}
+}
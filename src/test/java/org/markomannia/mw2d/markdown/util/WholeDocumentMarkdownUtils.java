@@ -0,0 +1,40 @@
+package org.markomannia.mw2d.markdown.util;
+
+/**
+ * The post-processing steps as they were applied to the whole document, before
+ * MarkdownPostProcessor applied them line by line. Kept as the reference that
+ * the line by line processing is compared with.
+ */
+public class WholeDocumentMarkdownUtils {
+
+	public static String cleanMarkdown(final String markdown) {
+		return MarkdownUtils.escapeMdxCharacters(MarkdownUtils.replaceLinks(markdown));
+	}
+
+	/**
+	 * Remove HTML tags from markdown, but preserve content inside fenced code
+	 * blocks.
+	 */
+	public static String removeHtmlTagsPreservingCodeBlocks(final String markdown) {
+		final StringBuilder result = new StringBuilder();
+		boolean inCodeBlock = false;
+
+		for (final String line : markdown.split("\n", -1)) {
+			if (line.startsWith("```")) {
+				inCodeBlock = !inCodeBlock;
+				result.append(line).append("\n");
+			} else if (inCodeBlock) {
+				result.append(line).append("\n");
+			} else {
+				result.append(MarkdownUtils.removeHtmlTags(line)).append("\n");
+			}
+		}
+
+		// Remove trailing newline if original didn't have one
+		if (!markdown.endsWith("\n") && result.length() > 0) {
+			result.setLength(result.length() - 1);
+		}
+
+		return result.toString();
+	}
+}
@@ -0,0 +1,60 @@
+package org.markomannia.mw2d.selection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.markomannia.mw2d.Config;
+import org.markomannia.mw2d.MigrationOptions;
+
+public class PageSelectorTest {
+
+	@Test
+	public void testIncludesAndExcludes() {
+		final PageSelector selector = new PageSelector(new PageSelectionRecord(
+				List.of("Magento_2_Extensions/*", "re:Feed Wizard(/.*)?"), List.of("*/Changelog"), Set.of(),
+				List.of(), null), null);
+
+		assertTrue(selector.selects("Magento 2 Extensions/Order Export", 0));
+		assertTrue(selector.selects("Magento_2_Extensions/Order_Export", 0));
+		assertTrue(selector.selects("Feed Wizard", 0));
+		assertFalse(selector.selects("Magento 2 Extensions/Changelog", 0));
+		assertFalse(selector.selects("Magento Extensions/Order Export", 0));
+		assertFalse(selector.selects("The Feed Wizard", 0));
+	}
+
+	@Test
+	public void testNamespacesAndListedTitles() {
+		final PageSelector selector = new PageSelector(
+				new PageSelectionRecord(List.of("Help:*"), List.of(), Set.of(0, 12), List.of("Connectors"), null),
+				Set.of("Connectors/Shopify", "FTP_Setup"));
+
+		assertTrue(selector.selects("FTP Setup", 0));
+		assertTrue(selector.selects("Connectors/Shopify", null));
+		assertTrue(selector.selects("Help:Contents", 12));
+		assertFalse(selector.selects("Connectors/Shopify", 4));
+		assertFalse(selector.selects("Connectors/Amazon", 0));
+		assertEquals(Config.NAMESPACES, selector.namespacesToEnumerate());
+		assertEquals(Config.NAMESPACES, PageSelector.ALL.namespacesToEnumerate());
+	}
+
+	@Test
+	public void testOptions() {
+		final MigrationOptions options = MigrationOptions.parse(new String[] { "--incremental", "--include",
+				"Connectors/*", "--namespace", "0", "--category", "Feed Wizard" });
+
+		assertTrue(options.incremental());
+		assertEquals(List.of("Connectors/*"), options.selection().includes());
+		assertEquals(Set.of(0), options.selection().namespaces());
+		assertThrows(IllegalArgumentException.class,
+				() -> MigrationOptions.parse(new String[] { "--namespace", "0,4" }));
+		assertEquals(List.of("Feed Wizard"), options.selection().categories());
+		assertTrue(MigrationOptions.parse(new String[0]).selection().isAll());
+		assertTrue(PageSelector.ALL.selects("Private/Anything", 0));
+	}
+}
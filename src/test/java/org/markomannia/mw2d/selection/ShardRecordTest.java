@@ -0,0 +1,50 @@
+package org.markomannia.mw2d.selection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.markomannia.mw2d.MigrationOptions;
+
+public class ShardRecordTest {
+
+	@Test
+	public void testPartition() {
+		final List<ShardRecord> shards = IntStream.rangeClosed(1, 4).mapToObj(i -> new ShardRecord(i, 4)).toList();
+		final int[] sizes = new int[4];
+
+		for (int i = 0; i < 1000; i++) {
+			final String title = "Connectors/Page " + i;
+			final List<ShardRecord> containing = shards.stream().filter(shard -> shard.contains(title)).toList();
+
+			assertEquals(1, containing.size());
+			assertEquals(containing, shards.stream().filter(shard -> shard.contains(title.replace(' ', '_'))).toList());
+
+			sizes[containing.get(0).index() - 1]++;
+		}
+
+		for (final int size : sizes) {
+			assertEquals(250, size, 50);
+		}
+	}
+
+	@Test
+	public void testParseAndPaths() {
+		final ShardRecord shard = ShardRecord.parse("2/4");
+
+		assertEquals(new ShardRecord(2, 4), shard);
+		assertEquals("/out/wiki/../.mw2d-manifest-shard-2-of-4.tsv", shard.path("/out/wiki/../.mw2d-manifest.tsv"));
+		assertEquals("/out/journal-shard-2-of-4", shard.path("/out/journal"));
+		assertThrows(IllegalArgumentException.class, () -> ShardRecord.parse("5/4"));
+		assertThrows(IllegalArgumentException.class, () -> ShardRecord.parse("2"));
+
+		assertEquals(shard, MigrationOptions.parse(new String[] { "--incremental", "--shard", "2/4" }).shard());
+		assertEquals(List.of("a.tsv", "b.tsv"),
+				MigrationOptions.parse(new String[] { "--merge", "a.tsv", "--merge", "b.tsv" }).mergedManifests());
+		assertThrows(IllegalArgumentException.class,
+				() -> MigrationOptions.parse(new String[] { "--merge", "a.tsv", "--incremental" }));
+	}
+}
@@ -0,0 +1,61 @@
+package org.markomannia.mw2d.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class SlugEngineTest {
+
+	@Test
+	public void testPathProfile() {
+		final SlugEngine engine = new SlugEngine(SlugEngine.Profile.PATH, null);
+
+		assertEquals("Magento_2_Extensions/Custom_SMTP", engine.slug("Magento 2 Extensions:Custom SMTP"));
+		assertEquals("Royal_Mail_Click_Drop", engine.slug("Royal_Mail_Click_&_Drop"));
+		assertEquals("Xtento/Oeffnungszeiten_Groesse/Test", engine.slug("_Xtento\\\\Öffnungszeiten (Größe)/._Test_"));
+		assertEquals("Manual_v2.pdf", engine.slug("Manual (v2).pdf"));
+		assertEquals("Release_1_2_1", engine.slug("Release 1.2.1"));
+
+		final String slug = engine.slug("Order Export");
+		assertSame(slug, engine.slug("Order Export"));
+	}
+
+	@Test
+	public void testAssetProfile() {
+		final SlugEngine engine = new SlugEngine(SlugEngine.Profile.ASSET, null);
+
+		assertEquals("Datei_Logo_Gross.webp", engine.slug("Datei:Logo (Groß).webp"));
+		assertEquals("a_b_c.jpeg", engine.slug("a/b\\c.jpeg"));
+	}
+
+	@Test
+	public void testCollisions() {
+		final SlugEngine engine = new SlugEngine(SlugEngine.Profile.PATH, "title");
+		final PrintStream out = System.out;
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+
+		try {
+			engine.slug("Main Page");
+			engine.slug("Main_Page");
+
+			assertFalse(buffer.toString(StandardCharsets.UTF_8).contains("Warning"));
+
+			engine.slug("Shipping (Rates)");
+			engine.slug("Shipping Rates");
+		} finally {
+			System.setOut(out);
+		}
+
+		assertTrue(buffer.toString(StandardCharsets.UTF_8).contains(
+				"Warning: The titles \"Shipping (Rates)\" and \"Shipping Rates\" are both written to Shipping_Rates"));
+	}
+}